@@ -71,7 +71,19 @@ public final class GLFutureSync extends GLObject implements Future<Void> {
         return new GLFutureSync(thread);
     }
 
+    /**
+     * Checks if the current OpenGL context supports sync objects. This must be
+     * called on an OpenGL thread.
+     *
+     * @return true if fences are backed by real sync objects.
+     * @since 26.10.18
+     */
+    public static boolean isSupported() {
+        return IMPLEMENTATION.get() != Implementations.NONE;
+    }
+
     private final AtomicLong syncObj = new AtomicLong(0);
+    private volatile boolean isFenced = false;
 
     private static void waitSyncGL32(final long sync) {
         while (true) {
@@ -264,8 +276,35 @@ public final class GLFutureSync extends GLObject implements Future<Void> {
                 default:
                 // ???
             }
+
+            isFenced = true;
         }));
     }
+
+    /**
+     * Checks if the GPU has passed the fence without blocking. Unlike isDone,
+     * this tests the sync object directly and must be called on the OpenGL
+     * thread the fence was inserted on.
+     *
+     * @return true if all commands issued before the fence have completed.
+     * @since 26.10.18
+     */
+    public boolean poll() {
+        if (!this.isFenced) {
+            return false;
+        }
+
+        switch (IMPLEMENTATION.get()) {
+            case GL32:
+                return testSyncGL32(this.syncObj);
+            case ARBSYNC:
+                return testSyncARBsync(this.syncObj);
+            case GLES30:
+                return testSyncGLES30(this.syncObj);
+            default:
+                return true;
+        }
+    }
     
     @Override
     public boolean cancel(boolean mayInterruptIfRunning) {
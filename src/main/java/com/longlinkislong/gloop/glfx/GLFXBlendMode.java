@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import com.longlinkislong.gloop.GLBlendFunc;
+import com.longlinkislong.gloop.GLBlending;
+import com.longlinkislong.gloop.GLEnableStatus;
+import com.runouw.util.Lazy;
+
+/**
+ * The ways a GLFXStage can blend its texture over the framebuffer. JavaFX
+ * renders premultiplied colors, so blending them as straight alpha darkens
+ * every partially transparent edge.
+ *
+ * @since 26.10.18
+ */
+public enum GLFXBlendMode {
+    /**
+     * The stage does not touch the blend state; whatever the caller set up is
+     * used. The texture holds premultiplied colors.
+     *
+     * @since 26.10.18
+     */
+    UNCHANGED(null),
+    /**
+     * Blending is enabled with premultiplied alpha: ONE, ONE_MINUS_SRC_ALPHA.
+     * Edges stay correct when the stage is scaled or filtered.
+     *
+     * @since 26.10.18
+     */
+    PREMULTIPLIED(GLBlendFunc.GL_ONE),
+    /**
+     * The shader divides the color by its alpha and blending is enabled with
+     * straight alpha: SRC_ALPHA, ONE_MINUS_SRC_ALPHA. For framebuffers that
+     * are later composited as straight alpha.
+     *
+     * @since 26.10.18
+     */
+    STRAIGHT(GLBlendFunc.GL_SRC_ALPHA);
+
+    private final Lazy<GLBlending> blending;
+
+    GLFXBlendMode(final GLBlendFunc srcFunc) {
+        this.blending = srcFunc == null
+                ? null
+                : new Lazy<>(() -> new GLBlending()
+                        .withEnabled(GLEnableStatus.GL_ENABLED)
+                        .withBlendFunc(srcFunc, GLBlendFunc.GL_ONE_MINUS_SRC_ALPHA, GLBlendFunc.GL_ONE, GLBlendFunc.GL_ONE_MINUS_SRC_ALPHA));
+    }
+
+    /**
+     * Applies the blend state. Must be called on the OpenGL thread.
+     */
+    void apply() {
+        if (this.blending != null) {
+            this.blending.get().applyBlending();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes when a GLFXStage is allowed to capture its JavaFX scene. Repaints
+ * that arrive while capturing is not allowed are coalesced into a single
+ * capture once it is allowed again. GLFXCapturePolicy is immutable.
+ *
+ * @since 26.10.18
+ */
+public final class GLFXCapturePolicy {
+
+    /**
+     * The default capture policy. Every repaint is captured.
+     *
+     * @since 26.10.18
+     */
+    public static final GLFXCapturePolicy DEFAULT_POLICY = new GLFXCapturePolicy();
+
+    /**
+     * The maximum number of captures per second. 0 means unlimited.
+     *
+     * @since 26.10.18
+     */
+    public final double maxFPS;
+    /**
+     * The minimum time between captures in nanoseconds.
+     *
+     * @since 26.10.18
+     */
+    public final long minInterval;
+    /**
+     * If true, captures are skipped while the stage is not visible.
+     *
+     * @since 26.10.18
+     */
+    public final boolean onlyWhenVisible;
+    /**
+     * If true, captures are skipped while the stage does not have focus.
+     *
+     * @since 26.10.18
+     */
+    public final boolean pauseWhenUnfocused;
+
+    /**
+     * Constructs the default capture policy.
+     *
+     * @since 26.10.18
+     */
+    public GLFXCapturePolicy() {
+        this(0.0, 0L, false, false);
+    }
+
+    /**
+     * Constructs a new capture policy.
+     *
+     * @param maxFPS the maximum number of captures per second. 0 for
+     * unlimited.
+     * @param minInterval the minimum time between captures in nanoseconds.
+     * @param onlyWhenVisible skip captures while the stage is not visible.
+     * @param pauseWhenUnfocused skip captures while the stage is unfocused.
+     * @since 26.10.18
+     */
+    public GLFXCapturePolicy(
+            final double maxFPS, final long minInterval,
+            final boolean onlyWhenVisible, final boolean pauseWhenUnfocused) {
+
+        if (maxFPS < 0.0) {
+            throw new IllegalArgumentException("Max FPS [" + maxFPS + "] cannot be negative!");
+        } else if (minInterval < 0L) {
+            throw new IllegalArgumentException("Minimum interval [" + minInterval + "] cannot be negative!");
+        }
+
+        this.maxFPS = maxFPS;
+        this.minInterval = minInterval;
+        this.onlyWhenVisible = onlyWhenVisible;
+        this.pauseWhenUnfocused = pauseWhenUnfocused;
+    }
+
+    /**
+     * Creates a new capture policy with the maximum captures per second
+     * changed.
+     *
+     * @param maxFPS the maximum number of captures per second. 0 for
+     * unlimited.
+     * @return the new capture policy.
+     * @since 26.10.18
+     */
+    public GLFXCapturePolicy withMaxFPS(final double maxFPS) {
+        return new GLFXCapturePolicy(maxFPS, this.minInterval, this.onlyWhenVisible, this.pauseWhenUnfocused);
+    }
+
+    /**
+     * Creates a new capture policy with the minimum time between captures
+     * changed.
+     *
+     * @param interval the minimum time between captures.
+     * @param unit the time unit of the interval.
+     * @return the new capture policy.
+     * @since 26.10.18
+     */
+    public GLFXCapturePolicy withMinInterval(final long interval, final TimeUnit unit) {
+        return new GLFXCapturePolicy(this.maxFPS, unit.toNanos(interval), this.onlyWhenVisible, this.pauseWhenUnfocused);
+    }
+
+    /**
+     * Creates a new capture policy with the visibility requirement changed.
+     *
+     * @param onlyWhenVisible skip captures while the stage is not visible.
+     * @return the new capture policy.
+     * @since 26.10.18
+     */
+    public GLFXCapturePolicy withOnlyWhenVisible(final boolean onlyWhenVisible) {
+        return new GLFXCapturePolicy(this.maxFPS, this.minInterval, onlyWhenVisible, this.pauseWhenUnfocused);
+    }
+
+    /**
+     * Creates a new capture policy with the focus requirement changed.
+     *
+     * @param pauseWhenUnfocused skip captures while the stage is unfocused.
+     * @return the new capture policy.
+     * @since 26.10.18
+     */
+    public GLFXCapturePolicy withPauseWhenUnfocused(final boolean pauseWhenUnfocused) {
+        return new GLFXCapturePolicy(this.maxFPS, this.minInterval, this.onlyWhenVisible, pauseWhenUnfocused);
+    }
+
+    /**
+     * Calculates the effective minimum time between captures. This is the
+     * larger of the minimum interval and the frame time of the max FPS.
+     *
+     * @return the minimum time between captures in nanoseconds.
+     * @since 26.10.18
+     */
+    public long getMinFrameInterval() {
+        if (this.maxFPS > 0.0) {
+            return Math.max(this.minInterval, (long) (TimeUnit.SECONDS.toNanos(1) / this.maxFPS));
+        } else {
+            return this.minInterval;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "GLFXCapturePolicy: [maxFPS=" + this.maxFPS
+                + " minInterval=" + this.minInterval
+                + " onlyWhenVisible=" + this.onlyWhenVisible
+                + " pauseWhenUnfocused=" + this.pauseWhenUnfocused + "]";
+    }
+}
@@ -26,8 +26,6 @@
 package com.longlinkislong.gloop.glfx;
 
 import com.sun.javafx.embed.EmbeddedSceneInterface;
-import java.util.List;
-import java.util.function.Consumer;
 import javafx.application.Platform;
 import javafx.event.Event;
 import javafx.geometry.Bounds;
@@ -51,7 +49,7 @@ public class GLFXContextMenuHandler {
     }
 
     public void fireContextMenuFromMouse(double mouseX, double mouseY, double mouseAbsX, double mouseAbsY){
-        forAllUnder(glfxStage.getRootNode(), mouseX, mouseY, node -> fireContextMenuEventFromMouse(node, mouseX, mouseY, mouseAbsX, mouseAbsY));
+        glfxStage.getNodeIndex().forAllUnder(glfxStage.getRootNode(), mouseX, mouseY, node -> fireContextMenuEventFromMouse(node, mouseX, mouseY, mouseAbsX, mouseAbsY));
 
         /*
         Node node = pickUnderMouse(glfxStage.getRootNode(), mouseX, mouseY);
@@ -86,40 +84,6 @@ public class GLFXContextMenuHandler {
         Event.fireEvent(node, contextMenuEvent);
     }
 
-    public static void forAllUnder(Node node, double sceneX, double sceneY, Consumer<Node> onUnder) {
-        Point2D p = node.sceneToLocal(sceneX, sceneY, true /* rootScene */);
-
-        // check if the given node has the point inside it, or else we drop out
-        if (!node.contains(p)) {
-            return;
-        }
-
-        // at this point we know that _at least_ the given node is a valid
-        // answer to the given point, so we will return that if we don't find
-        // a better child option
-        if (node instanceof Parent) {
-            // we iterate through all children in reverse order, and stop when we find a match.
-            // We do this as we know the elements at the end of the list have a higher
-            // z-order, and are therefore the better match, compared to children that
-            // might also intersect (but that would be underneath the element).
-            Node bestMatchingChild = null;
-            List<Node> children = ((Parent) node).getChildrenUnmodifiable();
-            for (int i = children.size() - 1; i >= 0; i--) {
-                Node child = children.get(i);
-                p = child.sceneToLocal(sceneX, sceneY, true /* rootScene */);
-                if (child.isVisible() && !child.isMouseTransparent() && child.contains(p)) {
-                    bestMatchingChild = child;
-                    break;
-                }
-            }
-
-            if (bestMatchingChild != null) {
-                onUnder.accept(bestMatchingChild);
-                forAllUnder(bestMatchingChild, sceneX, sceneY, onUnder);
-            }
-        }
-    }
-
     private Node pickUnderMouse(final Node current, final double x, final double y) {
         if (current.getOnDragDropped() != null) {
             return current;
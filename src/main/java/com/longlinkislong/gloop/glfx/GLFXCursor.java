@@ -61,7 +61,11 @@ public enum GLFXCursor {
         this.glfwHandle = new Lazy<>(initializer::getAsLong);
     }
 
+    long getHandle() {
+        return glfwHandle.get();
+    }
+
     public void apply(GLWindow window) {
-        window.setCursor(glfwHandle.get());
+        GLFXCursorCache.apply(window, glfwHandle.get());
     }
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import com.longlinkislong.gloop.GLQuery;
+import com.longlinkislong.gloop.GLWindow;
+import com.sun.javafx.cursor.ImageCursorFrame;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+import org.lwjgl.glfw.GLFWImage;
+import org.lwjgl.system.MemoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.lwjgl.glfw.GLFW.glfwCreateCursor;
+import static org.lwjgl.glfw.GLFW.glfwDestroyCursor;
+
+/**
+ * Caches GLFW cursor handles and the cursor last applied to each window.
+ * JavaFX sets the cursor again on every mouse move over some controls; a
+ * cursor is only sent to a window when it differs from the one the window
+ * already shows. Image cursors are converted to GLFW cursors once per cursor
+ * frame. At most MAX_IMAGE_CURSORS image cursors are kept; the least recently
+ * used one is destroyed when the limit is exceeded.
+ *
+ * @since 26.10.18
+ */
+final class GLFXCursorCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GLFXCursorCache.class);
+    private static final long NO_CURSOR = 0L;
+    private static final int MAX_IMAGE_CURSORS = 32;
+    // GLFW cursors are shared by all windows; only the applied cursor is per window
+    private static final Map<GLWindow, Long> APPLIED = new WeakHashMap<>();
+    // in access order so the least recently used cursor is evicted first
+    private static final Map<ImageCursorFrame, Long> IMAGE_CURSORS = new LinkedHashMap<>(16, 0.75f, true);
+
+    private GLFXCursorCache() {
+    }
+
+    /**
+     * Sets the cursor of a window unless the window already shows it.
+     *
+     * @param window the window.
+     * @param handle the GLFW cursor handle.
+     */
+    static void apply(final GLWindow window, final long handle) {
+        synchronized (APPLIED) {
+            final Long current = APPLIED.get(window);
+
+            if (current != null && current == handle) {
+                return;
+            }
+
+            APPLIED.put(window, handle);
+        }
+
+        window.setCursor(handle);
+    }
+
+    /**
+     * Retrieves the GLFW cursor for an image cursor, creating it the first
+     * time the cursor frame is seen.
+     *
+     * @param frame the image cursor frame.
+     * @return the GLFW cursor handle or 0 if the image could not be read.
+     */
+    static long getImageCursor(final ImageCursorFrame frame) {
+        synchronized (IMAGE_CURSORS) {
+            final Long cached = IMAGE_CURSORS.get(frame);
+
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        // created without the lock; the OpenGL thread may be waiting on it
+        final long created = createImageCursor(frame);
+        final List<Long> evicted = new ArrayList<>(1);
+        final long handle;
+
+        synchronized (IMAGE_CURSORS) {
+            final Long raced = IMAGE_CURSORS.get(frame);
+
+            if (raced != null) {
+                // another thread created the cursor first
+                evicted.add(created);
+                handle = raced;
+            } else {
+                IMAGE_CURSORS.put(frame, created);
+                handle = created;
+
+                final Iterator<Long> eldest = IMAGE_CURSORS.values().iterator();
+
+                while (IMAGE_CURSORS.size() > MAX_IMAGE_CURSORS) {
+                    evicted.add(eldest.next());
+                    eldest.remove();
+                }
+            }
+        }
+
+        destroy(evicted);
+        return handle;
+    }
+
+    /**
+     * Destroys every cached image cursor. Windows showing one of them fall
+     * back to the default cursor.
+     */
+    static void dispose() {
+        final List<Long> handles;
+
+        synchronized (IMAGE_CURSORS) {
+            handles = new ArrayList<>(IMAGE_CURSORS.values());
+            IMAGE_CURSORS.clear();
+        }
+
+        destroy(handles);
+    }
+
+    private static void destroy(final List<Long> handles) {
+        if (handles.isEmpty()) {
+            return;
+        }
+
+        synchronized (APPLIED) {
+            // the next apply must set the cursor again
+            APPLIED.values().removeIf(handles::contains);
+        }
+
+        for (long handle : handles) {
+            if (handle != NO_CURSOR) {
+                GLQuery.create(() -> {
+                    glfwDestroyCursor(handle);
+                    return null;
+                }).glCall();
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static long createImageCursor(final ImageCursorFrame frame) {
+        final Image image = Image.impl_fromPlatformImage(frame.getPlatformImage());
+        final PixelReader reader = image == null ? null : image.getPixelReader();
+
+        if (reader == null) {
+            LOGGER.warn("Unable to read image cursor; keeping the current cursor.");
+            return NO_CURSOR;
+        }
+
+        final int width = (int) image.getWidth();
+        final int height = (int) image.getHeight();
+        final ByteBuffer pixels = MemoryUtil.memAlloc(width * height * Integer.BYTES);
+
+        // GLFW expects non-premultiplied RGBA rows from the top
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int argb = reader.getArgb(x, y);
+
+                pixels.put((byte) (argb >>> 16))
+                        .put((byte) (argb >>> 8))
+                        .put((byte) argb)
+                        .put((byte) (argb >>> 24));
+            }
+        }
+
+        pixels.flip();
+
+        final int hotX = (int) Math.round(frame.getHotspotX());
+        final int hotY = (int) Math.round(frame.getHotspotY());
+        final GLFWImage glfwImage = GLFWImage.malloc().set(width, height, pixels);
+
+        try {
+            return GLQuery.create(() -> glfwCreateCursor(glfwImage, hotX, hotY)).glCall();
+        } finally {
+            glfwImage.free();
+            MemoryUtil.memFree(pixels);
+        }
+    }
+}
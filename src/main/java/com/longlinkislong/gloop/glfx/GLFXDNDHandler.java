@@ -52,12 +52,9 @@
 package com.longlinkislong.gloop.glfx;
 
 import com.sun.javafx.embed.EmbeddedSceneDSInterface;
-import com.sun.javafx.embed.EmbeddedSceneDTInterface;
 import com.sun.javafx.embed.EmbeddedSceneInterface;
 import com.sun.javafx.embed.HostDragStartListener;
 import com.sun.javafx.tk.Toolkit;
-import java.util.ArrayList;
-import java.util.List;
 import javafx.scene.input.TransferMode;
 
 /**
@@ -68,48 +65,6 @@ final class GLFXDNDHandler {
     private final EmbeddedSceneInterface scene;
     private final GLFXStage glfxStage;
 
-
-    private class DropInfo{
-        private final EmbeddedSceneDSInterface dragSource;
-        private final TransferMode dragAction;
-
-        public DropInfo(EmbeddedSceneDSInterface dragSource, TransferMode dragAction) {
-            this.dragSource = dragSource;
-            this.dragAction = dragAction;
-        }
-    }
-    private class DropHandlerData{
-        private int x;
-        private int y;
-        private int sx;
-        private int sy;
-        private final EmbeddedSceneDTInterface dt;
-
-        public DropHandlerData(EmbeddedSceneDTInterface dropTarget) {
-            this.dt = dropTarget;
-        }
-
-        private void handleDragLeave(){
-            dt.handleDragLeave();
-        }
-        private void handleDragEnter(){
-            dt.handleDragEnter(x, y, sx, sy, staticDropInfo.dragAction, staticDropInfo.dragSource);
-        }
-        private void handleDragOver(){
-            dt.handleDragOver(x, y, sx, sy, staticDropInfo.dragAction);
-        }
-        private TransferMode handleDragDrop(){
-            return dt.handleDragDrop(x, y, x, y, staticDropInfo.dragAction);
-        }
-
-    }
-
-    private static DropInfo staticDropInfo;
-    private DropInfo _dropInfo;
-
-    private EmbeddedSceneDTInterface dropTarget = null;
-    private final static List<DropHandlerData> DROP_TARGETS = new ArrayList<>();
-
     GLFXDNDHandler(final EmbeddedSceneInterface scene, final GLFXStage glfxStage) {
         this.scene = scene;
         this.glfxStage = glfxStage;
@@ -117,21 +72,6 @@ final class GLFXDNDHandler {
         scene.setDragStartListener(getDragStartListener);
     }
 
-    private DropHandlerData getDropTarget(int x, int y, int sx, int sy){
-        DropHandlerData dt = DROP_TARGETS.stream().filter(data -> data.dt == dropTarget).findFirst().orElse(null);
-        if(dt == null){
-            dropTarget = scene.createDropTarget();
-            dt = new DropHandlerData(dropTarget);
-            DROP_TARGETS.add(dt);
-        }
-
-        dt.x = x;
-        dt.y = y;
-        dt.sx = sx;
-        dt.sy = sy;
-        return dt;
-    }
-
     HostDragStartListener getDragStartListener = (EmbeddedSceneDSInterface dragSource, TransferMode dragAction) -> {
         if(!Toolkit.getToolkit().isFxUserThread()){
             throw new Error("Not on FX thread!");
@@ -140,43 +80,20 @@ final class GLFXDNDHandler {
             throw new Error("Drag source cannot be null!");
         }
 
-        // TODO: find out how to get dragboard?
-        // TODO: render dragboard image to texture and expose it so user can draw it
-
-        this._dropInfo = new DropInfo(dragSource, dragAction);
-        staticDropInfo = _dropInfo;
+        this.glfxStage.getDragContext().start(dragSource, dragAction);
     };
 
-    public void mousePosition(final int x, final int y, final int sx, final int sy) {
-        // TODO: update drag image position
-        if(staticDropInfo != null){
-            DropHandlerData dt = getDropTarget(x, y, sx, sy);
-
-            dt.handleDragLeave();
+    public void mousePosition(final int x, final int y, final int sx, final int sy, final double windowX, final double windowY) {
+        final GLFXDragContext dragContext = this.glfxStage.getDragContext();
 
-            dt.handleDragEnter();
-            dt.handleDragOver();
+        if (dragContext.isDragging()) {
+            dragContext.getDragImage().moveTo(windowX, windowY, this.glfxStage.getParentWindowWidth(), this.glfxStage.getParentWindowHeight());
+            dragContext.moveTo(this.scene, x, y, sx, sy);
         }
     }
 
     public void mouseReleased(final int x, final int y, final int sx, final int sy){
-        if(staticDropInfo != null && _dropInfo == staticDropInfo){ // only one handler will handle the drop for all of them
-            TransferMode finalMode = null;
-            for(DropHandlerData dt:DROP_TARGETS){
-                //dt.handleDragLeave();
-                TransferMode newMode = dt.handleDragDrop();
-                if(newMode != null){
-                    finalMode = newMode;
-                }
-            }
-
-            staticDropInfo.dragSource.dragDropEnd(finalMode);
-
-            // clear
-            _dropInfo = null;
-            staticDropInfo = null;
-            DROP_TARGETS.clear();
-        }
-        dropTarget = null;
+        // the drop goes to whichever scene the drag is over, not necessarily this one
+        this.glfxStage.getDragContext().drop();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import java.nio.ByteBuffer;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Finds the regions of a captured frame that changed since the last frame. The
+ * frame is split into square tiles and each tile is compared against a copy of
+ * the previous frame. Dirty tiles are merged into rectangles so that only the
+ * changed pixels need to be uploaded.
+ *
+ * @since 26.10.18
+ */
+final class GLFXDirtyRegionTracker {
+
+    static final int DEFAULT_TILE_SIZE = 64;
+    // past this many rectangles a single bounding box is cheaper to upload
+    private static final int MAX_REGIONS = 32;
+
+    private final int tileSize;
+    private ByteBuffer previous;
+    private int width;
+    private int height;
+    private boolean invalid = true;
+    private boolean[] dirtyTiles = new boolean[0];
+    // packed as [x, y, w, h] per region
+    private int[] regions = new int[MAX_REGIONS * 4];
+    private int regionCount = 0;
+
+    GLFXDirtyRegionTracker() {
+        this(DEFAULT_TILE_SIZE);
+    }
+
+    GLFXDirtyRegionTracker(final int tileSize) {
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("Tile size [" + tileSize + "] must be at least 1!");
+        }
+
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Forces the next call to update to report the entire frame as dirty.
+     */
+    void invalidate() {
+        this.invalid = true;
+    }
+
+    /**
+     * Reports the entire frame as a single dirty region without comparing or
+     * retaining any pixels. The next call to update will be a full update.
+     *
+     * @param frameWidth the width of the frame.
+     * @param frameHeight the height of the frame.
+     */
+    void markAllDirty(final int frameWidth, final int frameHeight) {
+        this.regionCount = 0;
+        this.addRegion(0, 0, frameWidth, frameHeight);
+        this.invalid = true;
+    }
+
+    int getRegionCount() {
+        return this.regionCount;
+    }
+
+    int getRegionX(final int region) {
+        return this.regions[region * 4];
+    }
+
+    int getRegionY(final int region) {
+        return this.regions[region * 4 + 1];
+    }
+
+    int getRegionWidth(final int region) {
+        return this.regions[region * 4 + 2];
+    }
+
+    int getRegionHeight(final int region) {
+        return this.regions[region * 4 + 3];
+    }
+
+    /**
+     * Retrieves the copy of the last frame passed to update. The returned
+     * buffer must not be modified.
+     *
+     * @return the last frame or null if no frame has been tracked since the
+     * tracker was invalidated.
+     */
+    ByteBuffer getPreviousFrame() {
+        return this.invalid ? null : this.previous;
+    }
+
+    int getWidth() {
+        return this.width;
+    }
+
+    int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Compares the frame against the previous frame and computes the dirty
+     * regions. The frame is then retained as the previous frame.
+     *
+     * @param frame the frame pixels; 4 bytes per pixel, tightly packed.
+     * @param frameWidth the width of the frame.
+     * @param frameHeight the height of the frame.
+     * @return the number of dirty regions.
+     */
+    int update(final ByteBuffer frame, final int frameWidth, final int frameHeight) {
+        final int frameSize = frameWidth * frameHeight * Integer.BYTES;
+
+        if (this.previous == null || this.previous.capacity() < frameSize) {
+            if (this.previous != null) {
+                MemoryUtil.memFree(this.previous);
+            }
+
+            this.previous = MemoryUtil.memAlloc(frameSize);
+            this.invalid = true;
+        }
+
+        if (this.width != frameWidth || this.height != frameHeight) {
+            this.width = frameWidth;
+            this.height = frameHeight;
+            this.invalid = true;
+        }
+
+        this.regionCount = 0;
+
+        if (this.invalid) {
+            copyRegion(frame, frameWidth, 0, 0, frameWidth, frameHeight, this.previous, 0);
+            this.addRegion(0, 0, frameWidth, frameHeight);
+            this.invalid = false;
+            return this.regionCount;
+        }
+
+        final int tilesX = (frameWidth + this.tileSize - 1) / this.tileSize;
+        final int tilesY = (frameHeight + this.tileSize - 1) / this.tileSize;
+
+        if (this.dirtyTiles.length < tilesX) {
+            this.dirtyTiles = new boolean[tilesX];
+        }
+
+        int dirtyPixels = 0;
+
+        for (int ty = 0; ty < tilesY; ty++) {
+            final int y0 = ty * this.tileSize;
+            final int tileHeight = Math.min(this.tileSize, frameHeight - y0);
+
+            this.findDirtyTiles(frame, tilesX, y0, tileHeight);
+
+            int tx = 0;
+
+            while (tx < tilesX) {
+                if (!this.dirtyTiles[tx]) {
+                    tx++;
+                    continue;
+                }
+
+                final int spanStart = tx;
+
+                while (tx < tilesX && this.dirtyTiles[tx]) {
+                    tx++;
+                }
+
+                final int x0 = spanStart * this.tileSize;
+                final int spanWidth = Math.min(tx * this.tileSize, frameWidth) - x0;
+
+                dirtyPixels += spanWidth * tileHeight;
+                this.mergeRegion(x0, y0, spanWidth, tileHeight);
+            }
+        }
+
+        // uploading one large rectangle is cheaper than many small ones that cover most of it
+        if (this.regionCount > MAX_REGIONS || dirtyPixels * 2 > frameWidth * frameHeight) {
+            this.collapseRegions();
+        }
+
+        for (int i = 0; i < this.regionCount; i++) {
+            copyRegion(frame, frameWidth,
+                    this.getRegionX(i), this.getRegionY(i), this.getRegionWidth(i), this.getRegionHeight(i),
+                    this.previous, (this.getRegionY(i) * frameWidth + this.getRegionX(i)) * Integer.BYTES, frameWidth);
+        }
+
+        return this.regionCount;
+    }
+
+    private void findDirtyTiles(final ByteBuffer frame, final int tilesX, final int y0, final int tileHeight) {
+        int remaining = tilesX;
+
+        for (int tx = 0; tx < tilesX; tx++) {
+            this.dirtyTiles[tx] = false;
+        }
+
+        for (int y = y0; y < y0 + tileHeight && remaining > 0; y++) {
+            final int rowOffset = y * this.width * Integer.BYTES;
+
+            for (int tx = 0; tx < tilesX; tx++) {
+                if (this.dirtyTiles[tx]) {
+                    continue;
+                }
+
+                final int x0 = tx * this.tileSize;
+                final int tileWidth = Math.min(this.tileSize, this.width - x0);
+                final int offset = rowOffset + x0 * Integer.BYTES;
+
+                if (!rangeEquals(frame, this.previous, offset, tileWidth * Integer.BYTES)) {
+                    this.dirtyTiles[tx] = true;
+                    remaining--;
+                }
+            }
+        }
+    }
+
+    private static boolean rangeEquals(final ByteBuffer a, final ByteBuffer b, final int offset, final int length) {
+        final int end = offset + length;
+        int i = offset;
+
+        for (; i + Long.BYTES <= end; i += Long.BYTES) {
+            if (a.getLong(i) != b.getLong(i)) {
+                return false;
+            }
+        }
+
+        for (; i < end; i += Integer.BYTES) {
+            if (a.getInt(i) != b.getInt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void mergeRegion(final int x, final int y, final int w, final int h) {
+        // extend a region from the previous tile row if it spans the same columns
+        for (int i = 0; i < this.regionCount; i++) {
+            final int base = i * 4;
+
+            if (this.regions[base] == x
+                    && this.regions[base + 2] == w
+                    && this.regions[base + 1] + this.regions[base + 3] == y) {
+
+                this.regions[base + 3] += h;
+                return;
+            }
+        }
+
+        this.addRegion(x, y, w, h);
+    }
+
+    private void addRegion(final int x, final int y, final int w, final int h) {
+        final int base = this.regionCount * 4;
+
+        if (base + 4 > this.regions.length) {
+            final int[] grown = new int[this.regions.length * 2];
+
+            System.arraycopy(this.regions, 0, grown, 0, this.regions.length);
+            this.regions = grown;
+        }
+
+        this.regions[base] = x;
+        this.regions[base + 1] = y;
+        this.regions[base + 2] = w;
+        this.regions[base + 3] = h;
+        this.regionCount++;
+    }
+
+    /**
+     * Replaces the dirty regions with their bounding box.
+     */
+    void collapseRegions() {
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = 0;
+        int maxY = 0;
+
+        for (int i = 0; i < this.regionCount; i++) {
+            minX = Math.min(minX, this.getRegionX(i));
+            minY = Math.min(minY, this.getRegionY(i));
+            maxX = Math.max(maxX, this.getRegionX(i) + this.getRegionWidth(i));
+            maxY = Math.max(maxY, this.getRegionY(i) + this.getRegionHeight(i));
+        }
+
+        this.regionCount = 0;
+        this.addRegion(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    /**
+     * Copies a rectangle of pixels out of a frame into a tightly packed buffer.
+     *
+     * @param src the source frame.
+     * @param srcWidth the width of the source frame.
+     * @param x the x-offset of the rectangle.
+     * @param y the y-offset of the rectangle.
+     * @param w the width of the rectangle.
+     * @param h the height of the rectangle.
+     * @param dst the destination buffer.
+     * @param dstOffset the byte offset to write to.
+     */
+    static void copyRegion(
+            final ByteBuffer src, final int srcWidth,
+            final int x, final int y, final int w, final int h,
+            final ByteBuffer dst, final int dstOffset) {
+
+        copyRegion(src, srcWidth, x, y, w, h, dst, dstOffset, w);
+    }
+
+    private static void copyRegion(
+            final ByteBuffer src, final int srcWidth,
+            final int x, final int y, final int w, final int h,
+            final ByteBuffer dst, final int dstOffset, final int dstWidth) {
+
+        // the positions and limits are borrowed instead of duplicating the buffers, which would allocate
+        final int srcPosition = src.position();
+        final int srcLimit = src.limit();
+        final int dstPosition = dst.position();
+        final int dstLimit = dst.limit();
+        final int rowBytes = w * Integer.BYTES;
+
+        src.clear();
+        dst.clear();
+
+        try {
+            if (w == srcWidth && w == dstWidth) {
+                // rows are contiguous in both buffers
+                final int srcOffset = y * srcWidth * Integer.BYTES;
+
+                src.position(srcOffset).limit(srcOffset + rowBytes * h);
+                dst.position(dstOffset);
+                dst.put(src);
+                return;
+            }
+
+            for (int row = 0; row < h; row++) {
+                final int srcOffset = ((y + row) * srcWidth + x) * Integer.BYTES;
+
+                src.limit(srcOffset + rowBytes).position(srcOffset);
+                dst.position(dstOffset + row * dstWidth * Integer.BYTES);
+                dst.put(src);
+            }
+        } finally {
+            src.limit(srcLimit).position(srcPosition);
+            dst.limit(dstLimit).position(dstPosition);
+        }
+    }
+
+    /**
+     * Releases the copy of the previous frame.
+     */
+    void free() {
+        if (this.previous != null) {
+            MemoryUtil.memFree(this.previous);
+            this.previous = null;
+        }
+
+        this.invalid = true;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import com.sun.javafx.embed.EmbeddedSceneDSInterface;
+import com.sun.javafx.embed.EmbeddedSceneDTInterface;
+import com.sun.javafx.embed.EmbeddedSceneInterface;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import javafx.application.Platform;
+import javafx.scene.input.TransferMode;
+
+/**
+ * Tracks the drag and drop gesture shared by a group of GLFXStages. Every
+ * stage that should accept drops from the others in its group shares one
+ * context; stages in different groups (such as stages drawn in different
+ * windows) should be given separate contexts with GLFXStage.setDragContext.
+ * Stages that are not given a context share a default one. A drop target is
+ * created the first time the drag reaches a scene and is reused until the
+ * drag ends.
+ *
+ * Enter and leave are only sent when the scene under the cursor changes. The
+ * first drag over is sent together with the enter; the drag over events that
+ * follow are coalesced so that a scene receives at most one per run of the
+ * JavaFX event loop. All methods must be called on the JavaFX thread.
+ *
+ * @since 26.10.18
+ */
+public final class GLFXDragContext {
+
+    /**
+     * The context used by stages that are not given one.
+     */
+    static final GLFXDragContext SHARED = new GLFXDragContext();
+
+    private EmbeddedSceneDSInterface dragSource;
+    private TransferMode dragAction;
+    private final Map<EmbeddedSceneInterface, EmbeddedSceneDTInterface> dropTargets = new IdentityHashMap<>();
+    private EmbeddedSceneDTInterface currentTarget;
+    private int x;
+    private int y;
+    private int screenX;
+    private int screenY;
+    private boolean overPending = false;
+    private boolean overScheduled = false;
+    private final Runnable overTask = this::flushDragOver;
+    private final GLFXDragImage dragImage = new GLFXDragImage();
+
+    /**
+     * Constructs a new drag context for a group of stages.
+     *
+     * @since 26.10.18
+     */
+    public GLFXDragContext() {
+    }
+
+    /**
+     * Starts a new drag gesture. Any drag in progress is cancelled.
+     *
+     * @param source the drag source.
+     * @param action the drag action.
+     */
+    void start(final EmbeddedSceneDSInterface source, final TransferMode action) {
+        if (this.isDragging()) {
+            if (this.currentTarget != null) {
+                this.currentTarget.handleDragLeave();
+            }
+
+            this.end(null);
+        }
+
+        this.dragSource = source;
+        this.dragAction = action;
+        this.dragImage.load(source);
+    }
+
+    boolean isDragging() {
+        return this.dragSource != null;
+    }
+
+    GLFXDragImage getDragImage() {
+        return this.dragImage;
+    }
+
+    /**
+     * Moves the drag to a position over a scene.
+     *
+     * @param scene the scene under the cursor.
+     * @param x the x-position in scene coordinates.
+     * @param y the y-position in scene coordinates.
+     * @param screenX the x-position in screen coordinates.
+     * @param screenY the y-position in screen coordinates.
+     */
+    void moveTo(final EmbeddedSceneInterface scene, final int x, final int y, final int screenX, final int screenY) {
+        if (!this.isDragging()) {
+            return;
+        }
+
+        this.x = x;
+        this.y = y;
+        this.screenX = screenX;
+        this.screenY = screenY;
+
+        final EmbeddedSceneDTInterface target = this.dropTargets.computeIfAbsent(scene, EmbeddedSceneInterface::createDropTarget);
+
+        if (target != this.currentTarget) {
+            if (this.currentTarget != null) {
+                this.currentTarget.handleDragLeave();
+            }
+
+            this.currentTarget = target;
+            this.overPending = false;
+            target.handleDragEnter(x, y, screenX, screenY, this.dragAction, this.dragSource);
+            // the target picks the accepted transfer mode on drag over
+            target.handleDragOver(x, y, screenX, screenY, this.dragAction);
+        } else {
+            this.overPending = true;
+
+            if (!this.overScheduled) {
+                this.overScheduled = true;
+                Platform.runLater(this.overTask);
+            }
+        }
+    }
+
+    private void flushDragOver() {
+        this.overScheduled = false;
+
+        if (this.overPending && this.currentTarget != null) {
+            this.overPending = false;
+            this.currentTarget.handleDragOver(this.x, this.y, this.screenX, this.screenY, this.dragAction);
+        }
+    }
+
+    /**
+     * Drops onto the scene under the cursor and ends the drag gesture.
+     */
+    void drop() {
+        if (!this.isDragging()) {
+            return;
+        }
+
+        TransferMode result = null;
+
+        if (this.currentTarget != null) {
+            // the target must see the final position before the drop
+            this.flushDragOver();
+            result = this.currentTarget.handleDragDrop(this.x, this.y, this.screenX, this.screenY, this.dragAction);
+        }
+
+        this.end(result);
+    }
+
+    private void end(final TransferMode result) {
+        final EmbeddedSceneDSInterface source = this.dragSource;
+
+        this.dragSource = null;
+        this.dragAction = null;
+        this.currentTarget = null;
+        this.overPending = false;
+        this.dropTargets.clear();
+        this.dragImage.hide();
+
+        source.dragDropEnd(result);
+    }
+}
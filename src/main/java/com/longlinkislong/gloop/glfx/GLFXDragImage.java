@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import com.longlinkislong.gloop.GLBuffer;
+import com.longlinkislong.gloop.GLBufferUsage;
+import com.longlinkislong.gloop.GLDrawMode;
+import com.longlinkislong.gloop.GLMat4D;
+import com.longlinkislong.gloop.GLProgram;
+import com.longlinkislong.gloop.GLTask;
+import com.longlinkislong.gloop.GLTexture;
+import com.longlinkislong.gloop.GLTextureFormat;
+import com.longlinkislong.gloop.GLTextureInternalFormat;
+import com.longlinkislong.gloop.GLTextureMagFilter;
+import com.longlinkislong.gloop.GLTextureMinFilter;
+import com.longlinkislong.gloop.GLTextureParameters;
+import com.longlinkislong.gloop.GLTextureWrap;
+import com.longlinkislong.gloop.GLTools;
+import com.longlinkislong.gloop.GLType;
+import com.longlinkislong.gloop.GLVertexArray;
+import com.longlinkislong.gloop.GLVertexAttributeSize;
+import com.longlinkislong.gloop.GLVertexAttributeType;
+import com.runouw.util.Lazy;
+import com.sun.javafx.embed.EmbeddedSceneDSInterface;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicReference;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import org.lwjgl.system.MemoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The image shown under the cursor while a drag and drop gesture is in
+ * progress. The dragboard's drag view is read once when the drag starts and
+ * uploaded to a texture the next time the draw task runs; afterwards drawing
+ * only moves a quad to the cursor.
+ *
+ * @since 26.10.18
+ */
+public final class GLFXDragImage {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GLFXDragImage.class);
+    // formats used by the JavaFX clipboard to carry the view set by Dragboard.setDragView
+    private static final String DRAG_IMAGE_MIME = "application/x-java-drag-image";
+    private static final String DRAG_IMAGE_OFFSET_MIME = "application/x-java-drag-image-offset";
+
+    private static final class Frame {
+
+        final ByteBuffer pixels;
+        final int width;
+        final int height;
+
+        Frame(final ByteBuffer pixels, final int width, final int height) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private final AtomicReference<Frame> pendingFrame = new AtomicReference<>();
+    private volatile boolean visible = false;
+    private volatile int offsetX;
+    private volatile int offsetY;
+    private volatile double cursorX;
+    private volatile double cursorY;
+    private volatile int windowWidth = 1;
+    private volatile int windowHeight = 1;
+    private volatile boolean projectionChanged = true;
+    private final GLMat4D projection = GLMat4D.ortho(0.0, 1.0, 1.0, 0.0, 0.0, 1.0).asStaticMat();
+    private GLTexture texture;
+    private int width;
+    private int height;
+
+    // the unit quad doubles as its own texture coordinates
+    private final Lazy<GLBuffer> quad = new Lazy<>(() -> {
+        final GLBuffer out = new GLBuffer();
+
+        out.setName("GLFXDragImage.quad");
+        out.allocate(2 * 4 * Float.BYTES, GLBufferUsage.GL_STATIC_DRAW);
+        out.upload(GLTools.wrapFloat(
+                0f, 0f,
+                0f, 1f,
+                1f, 0f,
+                1f, 1f));
+
+        return out;
+    });
+
+    private final Lazy<GLVertexArray> vao = new Lazy<>(() -> {
+        final GLVertexArray out = new GLVertexArray();
+
+        out.setName("GLFXDragImage.vao");
+        out.attachBuffer(
+                GLFXStage.ATTRIBUTES.getLocation("vPos"), this.quad.get(),
+                GLVertexAttributeType.GL_FLOAT, GLVertexAttributeSize.VEC2);
+        out.attachBuffer(
+                GLFXStage.ATTRIBUTES.getLocation("vUVs"), this.quad.get(),
+                GLVertexAttributeType.GL_FLOAT, GLVertexAttributeSize.VEC2);
+
+        return out;
+    });
+
+    private final Lazy<GLTask> drawTask = new Lazy<>(() -> GLTask.create(this::drawNow));
+
+    GLFXDragImage() {
+    }
+
+    /**
+     * Reads the drag view of a drag source. Must be called on the JavaFX
+     * thread. The image is hidden if the drag source has no drag view.
+     *
+     * @param source the drag source.
+     */
+    void load(final EmbeddedSceneDSInterface source) {
+        final Frame frame = readDragView(source);
+
+        if (frame == null) {
+            this.visible = false;
+            return;
+        }
+
+        final Object offset = source.isMimeTypeAvailable(DRAG_IMAGE_OFFSET_MIME)
+                ? source.getData(DRAG_IMAGE_OFFSET_MIME)
+                : null;
+
+        if (offset instanceof ByteBuffer && ((ByteBuffer) offset).capacity() >= 2 * Integer.BYTES) {
+            final ByteBuffer in = ((ByteBuffer) offset).duplicate().order(ByteOrder.BIG_ENDIAN);
+
+            this.offsetX = in.getInt(0);
+            this.offsetY = in.getInt(Integer.BYTES);
+        } else {
+            this.offsetX = 0;
+            this.offsetY = 0;
+        }
+
+        final Frame replaced = this.pendingFrame.getAndSet(frame);
+
+        if (replaced != null) {
+            MemoryUtil.memFree(replaced.pixels);
+        }
+
+        this.projectionChanged = true;
+        this.visible = true;
+    }
+
+    private static Frame readDragView(final EmbeddedSceneDSInterface source) {
+        if (!source.isMimeTypeAvailable(DRAG_IMAGE_MIME)) {
+            return null;
+        }
+
+        final Object view = source.getData(DRAG_IMAGE_MIME);
+
+        if (view instanceof Image) {
+            final Image image = (Image) view;
+            final PixelReader reader = image.getPixelReader();
+            final int w = (int) image.getWidth();
+            final int h = (int) image.getHeight();
+
+            if (reader == null || w < 1 || h < 1) {
+                return null;
+            }
+
+            final ByteBuffer pixels = MemoryUtil.memAlloc(w * h * Integer.BYTES);
+
+            reader.getPixels(0, 0, w, h, PixelFormat.getByteBgraPreInstance(), pixels, w * Integer.BYTES);
+            return new Frame(pixels, w, h);
+        } else if (view instanceof ByteBuffer) {
+            // serialized as the width and height followed by premultiplied BGRA pixels
+            final ByteBuffer in = ((ByteBuffer) view).duplicate().order(ByteOrder.BIG_ENDIAN);
+
+            in.clear();
+
+            if (in.remaining() < 2 * Integer.BYTES) {
+                return null;
+            }
+
+            final int w = in.getInt();
+            final int h = in.getInt();
+
+            if (w < 1 || h < 1 || in.remaining() < w * h * Integer.BYTES) {
+                LOGGER.debug("Ignoring malformed drag view of size [{}, {}].", w, h);
+                return null;
+            }
+
+            final ByteBuffer pixels = MemoryUtil.memAlloc(w * h * Integer.BYTES);
+
+            in.limit(in.position() + w * h * Integer.BYTES);
+            pixels.put(in).flip();
+            return new Frame(pixels, w, h);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Moves the image to the cursor.
+     *
+     * @param x the x-position of the cursor in window coordinates.
+     * @param y the y-position of the cursor in window coordinates.
+     * @param windowWidth the width of the window.
+     * @param windowHeight the height of the window.
+     */
+    void moveTo(final double x, final double y, final int windowWidth, final int windowHeight) {
+        if (x != this.cursorX || y != this.cursorY || windowWidth != this.windowWidth || windowHeight != this.windowHeight) {
+            this.cursorX = x;
+            this.cursorY = y;
+            this.windowWidth = Math.max(1, windowWidth);
+            this.windowHeight = Math.max(1, windowHeight);
+            this.projectionChanged = true;
+        }
+    }
+
+    /**
+     * Hides the image until the next drag starts.
+     */
+    void hide() {
+        this.visible = false;
+    }
+
+    /**
+     * Checks if a drag with a drag view is in progress.
+     *
+     * @return true if the image is drawn.
+     * @since 26.10.18
+     */
+    public boolean isVisible() {
+        return this.visible;
+    }
+
+    /**
+     * Retrieves the texture holding the drag view. The texture is created by
+     * the draw task and is reused by later drags of the same size.
+     *
+     * @return the texture or null if no drag view has been uploaded.
+     * @since 26.10.18
+     */
+    public GLTexture getTexture() {
+        return this.texture;
+    }
+
+    /**
+     * Retrieves the GLTask that draws the drag view at the cursor. The same
+     * task is returned every time and should be run after the stages are
+     * drawn. It does nothing while no drag is in progress.
+     *
+     * @return the draw task.
+     * @since 26.10.18
+     */
+    public GLTask getDrawTask() {
+        return this.drawTask.get();
+    }
+
+    private void drawNow() {
+        final Frame frame = this.pendingFrame.getAndSet(null);
+
+        if (frame != null) {
+            try {
+                this.upload(frame);
+            } finally {
+                MemoryUtil.memFree(frame.pixels);
+            }
+        }
+
+        if (!this.visible || this.texture == null) {
+            return;
+        }
+
+        if (this.projectionChanged) {
+            this.projectionChanged = false;
+
+            final double left = this.cursorX - this.offsetX;
+            final double top = this.cursorY - this.offsetY;
+
+            // maps the unit quad onto the image rectangle at the cursor
+            this.projection.set(GLMat4D.ortho(
+                    -left / this.width, (this.windowWidth - left) / this.width,
+                    (this.windowHeight - top) / this.height, -top / this.height,
+                    -1, 1));
+        }
+
+        final GLProgram program = GLFXStage.PROGRAM.get();
+
+        program.use();
+        program.setUniformI("fxTexture", 0);
+        program.setUniformMatrixF("vProj", this.projection);
+        this.texture.bind(0);
+        this.vao.get().drawArrays(GLDrawMode.GL_TRIANGLE_STRIP, 0, 4);
+    }
+
+    private void upload(final Frame frame) {
+        if (this.texture == null || this.width != frame.width || this.height != frame.height) {
+            if (this.texture != null) {
+                this.texture.delete();
+            }
+
+            this.texture = new GLTexture()
+                    .allocate(1, GLTextureInternalFormat.GL_RGBA8, frame.width, frame.height)
+                    .setAttributes(new GLTextureParameters()
+                            .withFilter(GLTextureMinFilter.GL_LINEAR, GLTextureMagFilter.GL_LINEAR)
+                            .withWrap(GLTextureWrap.GL_CLAMP_TO_EDGE, GLTextureWrap.GL_CLAMP_TO_EDGE, GLTextureWrap.GL_CLAMP_TO_EDGE));
+
+            this.texture.setName("GLFXDragImage.texture");
+            this.width = frame.width;
+            this.height = frame.height;
+        }
+
+        this.texture.updateImage(0, 0, 0, frame.width, frame.height, GLTextureFormat.GL_BGRA, GLType.GL_UNSIGNED_BYTE, frame.pixels);
+        this.projectionChanged = true;
+    }
+
+    /**
+     * Deletes the texture and vertex data.
+     *
+     * @since 26.10.18
+     */
+    public void delete() {
+        final Frame frame = this.pendingFrame.getAndSet(null);
+
+        if (frame != null) {
+            MemoryUtil.memFree(frame.pixels);
+        }
+
+        if (this.texture != null) {
+            this.texture.delete();
+            this.texture = null;
+        }
+
+        this.vao.ifInitialized(GLVertexArray::delete);
+        this.quad.ifInitialized(GLBuffer::delete);
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.lwjgl.system.MemoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the frames captured by GLFXStages to a GLFXFrameSink. Each captured
+ * frame is copied into one of a fixed number of pooled buffers and written by
+ * a dedicated thread, so the capturing thread never waits on the sink. When
+ * every buffer is still waiting to be written the frame is dropped instead.
+ *
+ * @since 26.10.18
+ */
+public final class GLFXFrameRecorder implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GLFXFrameRecorder.class);
+
+    /**
+     * The number of buffers used when none is specified.
+     *
+     * @since 26.10.18
+     */
+    public static final int DEFAULT_POOL_SIZE = 3;
+
+    /**
+     * The time close waits for pending frames when no timeout is given.
+     *
+     * @since 26.10.18
+     */
+    public static final long DEFAULT_CLOSE_TIMEOUT_SECONDS = 30L;
+
+    private final GLFXFrameSink sink;
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        final Thread t = new Thread(task);
+
+        t.setDaemon(true);
+        t.setName("GLFXFrameRecorder - Writer Thread");
+        return t;
+    });
+    private volatile boolean recording = true;
+    private volatile long recordedFrames = 0L;
+    private volatile long droppedFrames = 0L;
+    // only touched by the capturing thread
+    private long nextFrameNumber = 0L;
+
+    /**
+     * Constructs a new GLFXFrameRecorder with the default pool size.
+     *
+     * @param sink the sink to write frames to.
+     * @since 26.10.18
+     */
+    public GLFXFrameRecorder(final GLFXFrameSink sink) {
+        this(sink, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * Constructs a new GLFXFrameRecorder.
+     *
+     * @param sink the sink to write frames to.
+     * @param poolSize the number of frames that may wait to be written.
+     * @since 26.10.18
+     */
+    public GLFXFrameRecorder(final GLFXFrameSink sink, final int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size [" + poolSize + "] must be at least 1!");
+        }
+
+        this.sink = Objects.requireNonNull(sink);
+        this.freeBuffers = new ArrayBlockingQueue<>(poolSize);
+
+        for (int i = 0; i < poolSize; i++) {
+            // buffers are allocated on first use once the frame size is known
+            this.freeBuffers.add(ByteBuffer.allocateDirect(0));
+        }
+    }
+
+    /**
+     * Offers a captured frame. Called by the thread that captured it.
+     *
+     * @param frame the frame pixels.
+     * @param width the frame width.
+     * @param height the frame height.
+     */
+    synchronized void offer(final ByteBuffer frame, final int width, final int height) {
+        if (!this.recording || this.writer.isShutdown()) {
+            return;
+        }
+
+        final ByteBuffer pooled = this.freeBuffers.poll();
+
+        if (pooled == null) {
+            this.droppedFrames++;
+            return;
+        }
+
+        final int size = width * height * Integer.BYTES;
+        final ByteBuffer buffer;
+
+        if (pooled.capacity() < size) {
+            if (pooled.capacity() > 0) {
+                MemoryUtil.memFree(pooled);
+            }
+
+            buffer = MemoryUtil.memAlloc(size);
+        } else {
+            buffer = pooled;
+        }
+
+        final ByteBuffer src = frame.duplicate();
+
+        src.clear().limit(size);
+        buffer.clear();
+        buffer.put(src).flip();
+
+        final long frameNumber = this.nextFrameNumber++;
+
+        this.writer.execute(() -> this.write(buffer, width, height, frameNumber));
+    }
+
+    private void write(final ByteBuffer buffer, final int width, final int height, final long frameNumber) {
+        try {
+            if (this.recording) {
+                this.sink.writeFrame(buffer, width, height, frameNumber);
+                this.recordedFrames++;
+            }
+        } catch (IOException | RuntimeException ex) {
+            // a broken sink would fail every following frame as well
+            LOGGER.error("Unable to write frame {}; recording stopped.", frameNumber);
+            LOGGER.error(ex.getMessage(), ex);
+            this.recording = false;
+        } finally {
+            this.freeBuffers.add(buffer);
+        }
+    }
+
+    /**
+     * Checks if frames are still being recorded. Recording stops when the
+     * recorder is closed or the sink fails to write a frame.
+     *
+     * @return true if frames are recorded.
+     * @since 26.10.18
+     */
+    public boolean isRecording() {
+        return this.recording;
+    }
+
+    /**
+     * Retrieves the number of frames written to the sink.
+     *
+     * @return the number of recorded frames.
+     * @since 26.10.18
+     */
+    public long getRecordedFrames() {
+        return this.recordedFrames;
+    }
+
+    /**
+     * Retrieves the number of frames dropped because every buffer was waiting
+     * to be written.
+     *
+     * @return the number of dropped frames.
+     * @since 26.10.18
+     */
+    public long getDroppedFrames() {
+        return this.droppedFrames;
+    }
+
+    /**
+     * Stops recording, waits up to DEFAULT_CLOSE_TIMEOUT_SECONDS for the
+     * pending frames to be written and closes the sink.
+     *
+     * @throws IOException if the sink could not be closed or the pending
+     * frames were not written in time.
+     * @see #close(long, java.util.concurrent.TimeUnit)
+     * @since 26.10.18
+     */
+    @Override
+    public void close() throws IOException {
+        this.close(DEFAULT_CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops recording, waits for the pending frames to be written and closes
+     * the sink. If the sink blocks for longer than the timeout, the writer
+     * thread is interrupted and the remaining frames are dropped.
+     *
+     * @param timeout the longest time to wait for the pending frames.
+     * @param unit the unit of the timeout.
+     * @throws IOException if the sink could not be closed or the pending
+     * frames were not written in time.
+     * @since 26.10.18
+     */
+    public void close(final long timeout, final TimeUnit unit) throws IOException {
+        synchronized (this) {
+            if (this.writer.isShutdown()) {
+                return;
+            }
+
+            this.writer.shutdown();
+        }
+
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean isInterrupted = false;
+        boolean terminated = false;
+
+        while (!terminated) {
+            final long remaining = deadline - System.nanoTime();
+
+            if (remaining <= 0L) {
+                break;
+            }
+
+            try {
+                terminated = this.writer.awaitTermination(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                isInterrupted = true;
+            }
+        }
+
+        this.recording = false;
+
+        if (!terminated) {
+            // interrupting the writer unblocks interruptible sinks; its buffer is leaked if it stays blocked
+            LOGGER.warn("Sink did not accept the pending frames within [{} {}]; dropping them.", timeout, unit);
+            this.writer.shutdownNow();
+        }
+
+        for (ByteBuffer buffer : this.freeBuffers) {
+            if (buffer.capacity() > 0) {
+                MemoryUtil.memFree(buffer);
+            }
+        }
+
+        this.freeBuffers.clear();
+
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.sink.close();
+
+        if (!terminated) {
+            throw new IOException("Pending frames were not written within [" + timeout + " " + unit + "]!");
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A consumer of frames recorded from a GLFXStage. Frames are delivered by a
+ * GLFXFrameRecorder on its writer thread, one at a time and in capture order.
+ *
+ * @since 26.10.18
+ */
+public interface GLFXFrameSink extends AutoCloseable {
+
+    /**
+     * Writes a frame. The pixels are premultiplied BGRA, 4 bytes per pixel,
+     * tightly packed and ordered from the top row. The buffer is reused once
+     * the call returns, so implementations that process the frame later must
+     * copy it. Blocking in this method applies backpressure: the recorder
+     * drops frames while all of its buffers are waiting to be written.
+     *
+     * @param pixels the frame pixels.
+     * @param width the frame width.
+     * @param height the frame height.
+     * @param frameNumber the index of the frame within the recording.
+     * @throws IOException if the frame could not be written.
+     * @since 26.10.18
+     */
+    void writeFrame(ByteBuffer pixels, int width, int height, long frameNumber) throws IOException;
+
+    /**
+     * Finishes writing and releases the sink's resources.
+     *
+     * @throws IOException if the remaining output could not be written.
+     * @since 26.10.18
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A bitmask of the opaque pixels of the last captured frame. The mask is
+ * updated on the OpenGL thread from the regions that changed and can be
+ * queried from any thread.
+ *
+ * @since 26.10.18
+ */
+final class GLFXHitMask {
+
+    private static final class Mask {
+
+        final int width;
+        final int height;
+        // one bit per pixel, row-major
+        final long[] bits;
+
+        Mask(final int width, final int height) {
+            this.width = width;
+            this.height = height;
+            this.bits = new long[(width * height + Long.SIZE - 1) / Long.SIZE];
+        }
+    }
+
+    private volatile Mask mask;
+    private volatile int alphaThreshold = 0;
+
+    /**
+     * Sets the alpha a pixel must exceed to count as opaque.
+     *
+     * @param alphaThreshold the threshold in [0, 255].
+     */
+    void setAlphaThreshold(final int alphaThreshold) {
+        if (alphaThreshold < 0 || alphaThreshold > 255) {
+            throw new IllegalArgumentException("Alpha threshold [" + alphaThreshold + "] must be in [0, 255]!");
+        }
+
+        this.alphaThreshold = alphaThreshold;
+    }
+
+    int getAlphaThreshold() {
+        return this.alphaThreshold;
+    }
+
+    /**
+     * Discards the mask. Every position tests as opaque until the next full
+     * update.
+     */
+    void invalidate() {
+        this.mask = null;
+    }
+
+    /**
+     * Updates a rectangle of the mask from a frame. A frame of a different
+     * size replaces the mask; it must be updated in full.
+     *
+     * @param frame the frame pixels in BGRA order.
+     * @param frameWidth the width of the frame.
+     * @param frameHeight the height of the frame.
+     * @param x the x-offset of the rectangle.
+     * @param y the y-offset of the rectangle.
+     * @param w the width of the rectangle.
+     * @param h the height of the rectangle.
+     */
+    void update(
+            final ByteBuffer frame, final int frameWidth, final int frameHeight,
+            final int x, final int y, final int w, final int h) {
+
+        Mask current = this.mask;
+
+        if (current == null || current.width != frameWidth || current.height != frameHeight) {
+            current = new Mask(frameWidth, frameHeight);
+        }
+
+        final long[] bits = current.bits;
+        final int threshold = this.alphaThreshold;
+
+        for (int row = y; row < y + h; row++) {
+            for (int col = x; col < x + w; col++) {
+                final int pixel = row * frameWidth + col;
+                // alpha is the last byte of a BGRA pixel
+                final int alpha = frame.get(pixel * Integer.BYTES + 3) & 0xFF;
+
+                if (alpha > threshold) {
+                    bits[pixel >>> 6] |= 1L << pixel;
+                } else {
+                    bits[pixel >>> 6] &= ~(1L << pixel);
+                }
+            }
+        }
+
+        this.mask = current;
+    }
+
+    /**
+     * Checks if the pixel at a position was opaque in the last frame.
+     *
+     * @param x the x-position in frame pixels.
+     * @param y the y-position in frame pixels.
+     * @return true if the pixel is opaque or if no frame has been seen. False
+     * for positions outside of the frame.
+     */
+    boolean isOpaque(final int x, final int y) {
+        final Mask current = this.mask;
+
+        if (current == null) {
+            // nothing is known about the content; assume it wants the input
+            return true;
+        } else if (x < 0 || y < 0 || x >= current.width || y >= current.height) {
+            return false;
+        }
+
+        final int pixel = y * current.width + x;
+
+        return (current.bits[pixel >>> 6] & (1L << pixel)) != 0L;
+    }
+}
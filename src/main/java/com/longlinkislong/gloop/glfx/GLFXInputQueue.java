@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A lock-free queue of input events passed from the window thread to the
+ * JavaFX thread. Events are stored as primitive records in preallocated
+ * arrays, so enqueueing an event does not allocate. Only one drain task is
+ * scheduled on the JavaFX thread at a time and it processes every event
+ * queued before it ran.
+ *
+ * The queue supports a single producer and a single consumer. Consecutive
+ * mouse moves are coalesced when drained; only the last position of a run of
+ * moves is forwarded, so moves are never reordered with clicks or key
+ * presses. Consecutive scrolls are summed into a single scroll.
+ *
+ * @since 26.10.18
+ */
+final class GLFXInputQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GLFXInputQueue.class);
+
+    static final int DEFAULT_CAPACITY = 1024;
+
+    static final int TYPE_KEY = 0;
+    static final int TYPE_CHAR = 1;
+    static final int TYPE_MOUSE_BUTTON = 2;
+    static final int TYPE_MOUSE_MOVE = 3;
+    static final int TYPE_MOUSE_SCROLL = 4;
+
+    /**
+     * Receives drained input events on the JavaFX thread.
+     */
+    @FunctionalInterface
+    interface Handler {
+
+        /**
+         * Handles a single input event. The meaning of the arguments depends
+         * on the event type; unused arguments are 0.
+         *
+         * @param type the event type.
+         * @param code the key, character or mouse button.
+         * @param scanCode the key scan code.
+         * @param action the ordinal of the key or mouse button action.
+         * @param modifiers the modifier bitmask.
+         * @param x the mouse x-position or horizontal scroll.
+         * @param y the mouse y-position or vertical scroll.
+         */
+        void handle(int type, int code, int scanCode, int action, int modifiers, double x, double y);
+    }
+
+    private final Handler handler;
+    private final int mask;
+    private final int[] types;
+    private final int[] codes;
+    private final int[] scanCodes;
+    private final int[] actions;
+    private final int[] modifiers;
+    private final double[] xs;
+    private final double[] ys;
+    // tail is only written by the producer and head only by the consumer
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final Runnable drainTask = this::drain;
+    private final GLFXStageStats stats;
+
+    GLFXInputQueue(final int capacity, final GLFXStageStats stats, final Handler handler) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity [" + capacity + "] must be a power of 2!");
+        }
+
+        this.mask = capacity - 1;
+        this.types = new int[capacity];
+        this.codes = new int[capacity];
+        this.scanCodes = new int[capacity];
+        this.actions = new int[capacity];
+        this.modifiers = new int[capacity];
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+        this.stats = stats;
+        this.handler = handler;
+    }
+
+    /**
+     * Appends an event and schedules a drain if none is pending. Must only be
+     * called by the producer thread.
+     *
+     * @param type the event type.
+     * @param code the key, character or mouse button.
+     * @param scanCode the key scan code.
+     * @param action the ordinal of the key or mouse button action.
+     * @param mods the modifier bitmask.
+     * @param x the mouse x-position or horizontal scroll.
+     * @param y the mouse y-position or vertical scroll.
+     * @return false if the queue was full and the event was dropped.
+     */
+    boolean offer(
+            final int type, final int code, final int scanCode, final int action, final int mods,
+            final double x, final double y) {
+
+        final long t = this.tail.get();
+        final long depth = t - this.head.get();
+
+        if (depth > this.mask) {
+            if (this.stats.recordDroppedInput() == 1L) {
+                LOGGER.warn("Input queue is full; events are being dropped.");
+            }
+
+            this.scheduleDrain();
+            return false;
+        }
+
+        final int slot = (int) t & this.mask;
+
+        this.types[slot] = type;
+        this.codes[slot] = code;
+        this.scanCodes[slot] = scanCode;
+        this.actions[slot] = action;
+        this.modifiers[slot] = mods;
+        this.xs[slot] = x;
+        this.ys[slot] = y;
+
+        // publishes the record to the consumer
+        this.tail.lazySet(t + 1);
+        this.stats.recordInputQueueDepth(depth + 1);
+        this.scheduleDrain();
+        return true;
+    }
+
+    private void scheduleDrain() {
+        if (this.drainScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this.drainTask);
+        }
+    }
+
+    /**
+     * Retrieves the number of events waiting to be drained.
+     *
+     * @return the queue depth.
+     */
+    int getDepth() {
+        return (int) (this.tail.get() - this.head.get());
+    }
+
+    /**
+     * Forwards every queued event to the handler. Must only be called by the
+     * consumer thread. Each event is removed from the queue before it is
+     * handled, so an exception thrown by the handler never causes an event to
+     * be delivered twice; the events after it are left for another drain.
+     */
+    void drain() {
+        // clear first; any event published after this schedules another drain
+        this.drainScheduled.set(false);
+
+        long h = this.head.get();
+        final long t = this.tail.get();
+        // scrolls being folded into the last scroll of a run; the published slots are never written
+        double scrollX = 0.0;
+        double scrollY = 0.0;
+
+        while (h < t) {
+            final int slot = (int) h & this.mask;
+            final int type = this.types[slot];
+
+            h++;
+
+            if (h < t && this.types[(int) h & this.mask] == type) {
+                if (type == TYPE_MOUSE_MOVE) {
+                    // a newer position follows immediately
+                    this.stats.recordCoalescedInput();
+                    continue;
+                } else if (type == TYPE_MOUSE_SCROLL) {
+                    scrollX += this.xs[slot];
+                    scrollY += this.ys[slot];
+                    this.stats.recordCoalescedInput();
+                    continue;
+                }
+            }
+
+            final int code = this.codes[slot];
+            final int scanCode = this.scanCodes[slot];
+            final int action = this.actions[slot];
+            final int mods = this.modifiers[slot];
+            final double x = this.xs[slot] + scrollX;
+            final double y = this.ys[slot] + scrollY;
+
+            scrollX = 0.0;
+            scrollY = 0.0;
+
+            // frees the slots for the producer; the record has been copied
+            this.head.lazySet(h);
+
+            try {
+                this.handler.handle(type, code, scanCode, action, mods, x, y);
+            } catch (RuntimeException | Error ex) {
+                if (h < t) {
+                    // the remaining events are delivered by the next drain
+                    this.scheduleDrain();
+                }
+
+                throw ex;
+            }
+
+            this.stats.recordForwardedInput();
+        }
+    }
+}
@@ -0,0 +1,524 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import com.longlinkislong.gloop.GLFramebufferResizeListener;
+import com.longlinkislong.gloop.GLKeyAction;
+import com.longlinkislong.gloop.GLKeyCharListener;
+import com.longlinkislong.gloop.GLKeyListener;
+import com.longlinkislong.gloop.GLKeyModifier;
+import com.longlinkislong.gloop.GLMouseButtonAction;
+import com.longlinkislong.gloop.GLMouseButtonListener;
+import com.longlinkislong.gloop.GLMousePositionListener;
+import com.longlinkislong.gloop.GLMouseScrollListener;
+import com.longlinkislong.gloop.GLViewport;
+import com.longlinkislong.gloop.GLWindow;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Routes the input of a single window to any number of GLFXStages drawn in
+ * it. The router registers its listeners once; stages are added, moved and
+ * removed without touching the window. A stage may be added to the routers
+ * of several windows to receive input from all of them.
+ *
+ * Mouse events go to the topmost stage under the mouse, or to the stage that
+ * was pressed while a button is held. Key events go to the stage that was
+ * last pressed. Stages with hit testing enabled are skipped where they are
+ * transparent. The stage under the mouse is found through a grid of cells
+ * built whenever a stage is added, removed, moved or resized, so each event is
+ * dispatched in constant time. Framebuffer resizes of the window are forwarded
+ * to every stage as its parent window size.
+ *
+ * All windows must deliver their events on the same thread, as GLFW does.
+ *
+ * @since 26.10.18
+ */
+public class GLFXInputRouter {
+
+    private static final int CELL_SIZE = 64;
+    private static final Target[] NO_TARGETS = new Target[0];
+
+    private static final class Entry {
+
+        final GLFXStage stage;
+        int x;
+        int y;
+
+        Entry(final GLFXStage stage) {
+            this.stage = stage;
+        }
+    }
+
+    // a stage's bounds at the time the layout was built
+    private static final class Target {
+
+        final GLFXStage stage;
+        final int x;
+        final int y;
+        final int width;
+        final int height;
+
+        Target(final Entry entry) {
+            this.stage = entry.stage;
+            this.x = entry.x;
+            this.y = entry.y;
+            this.width = entry.stage.getWidth();
+            this.height = entry.stage.getHeight();
+        }
+
+        boolean contains(final double px, final double py) {
+            return px >= this.x && py >= this.y && px < this.x + this.width && py < this.y + this.height;
+        }
+    }
+
+    // an immutable snapshot of the layout; replaced whenever the layout changes
+    private static final class Layout {
+
+        final int originX;
+        final int originY;
+        final int columns;
+        final int rows;
+        // the stages overlapping each cell, topmost first
+        final Target[][] cells;
+        final Map<GLFXStage, Target> targets = new IdentityHashMap<>();
+
+        Layout(final List<Entry> entries) {
+            final List<Target> all = new ArrayList<>(entries.size());
+            int minX = Integer.MAX_VALUE;
+            int minY = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE;
+            int maxY = Integer.MIN_VALUE;
+
+            for (Entry entry : entries) {
+                final Target target = new Target(entry);
+
+                all.add(target);
+                this.targets.put(target.stage, target);
+                minX = Math.min(minX, target.x);
+                minY = Math.min(minY, target.y);
+                maxX = Math.max(maxX, target.x + target.width);
+                maxY = Math.max(maxY, target.y + target.height);
+            }
+
+            if (all.isEmpty()) {
+                this.originX = 0;
+                this.originY = 0;
+                this.columns = 0;
+                this.rows = 0;
+                this.cells = new Target[0][];
+                return;
+            }
+
+            this.originX = minX;
+            this.originY = minY;
+            this.columns = (maxX - minX + CELL_SIZE - 1) / CELL_SIZE;
+            this.rows = (maxY - minY + CELL_SIZE - 1) / CELL_SIZE;
+            this.cells = new Target[this.columns * this.rows][];
+
+            @SuppressWarnings("unchecked")
+            final List<Target>[] cellLists = new List[this.cells.length];
+
+            // entries are in drawing order; walk backwards so the topmost stage comes first
+            for (int i = all.size() - 1; i >= 0; i--) {
+                final Target target = all.get(i);
+                final int c0 = (target.x - minX) / CELL_SIZE;
+                final int r0 = (target.y - minY) / CELL_SIZE;
+                final int c1 = (target.x + target.width - 1 - minX) / CELL_SIZE;
+                final int r1 = (target.y + target.height - 1 - minY) / CELL_SIZE;
+
+                for (int r = r0; r <= r1; r++) {
+                    for (int c = c0; c <= c1; c++) {
+                        final int cell = r * this.columns + c;
+
+                        if (cellLists[cell] == null) {
+                            cellLists[cell] = new ArrayList<>(1);
+                        }
+
+                        cellLists[cell].add(target);
+                    }
+                }
+            }
+
+            for (int i = 0; i < this.cells.length; i++) {
+                this.cells[i] = cellLists[i] == null ? NO_TARGETS : cellLists[i].toArray(NO_TARGETS);
+            }
+        }
+
+        Target pick(final double px, final double py) {
+            if (px < this.originX || py < this.originY) {
+                return null;
+            }
+
+            final int c = (int) (px - this.originX) / CELL_SIZE;
+            final int r = (int) (py - this.originY) / CELL_SIZE;
+
+            if (c >= this.columns || r >= this.rows) {
+                return null;
+            }
+
+            for (Target target : this.cells[r * this.columns + c]) {
+                // transparent pixels let the input through to the stages beneath
+                if (target.contains(px, py)
+                        && target.stage.hitTest(px - target.x, py - target.y) == GLFXHitResult.CONSUME) {
+
+                    return target;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    private final GLWindow window;
+    private final List<Entry> entries = new ArrayList<>();
+    private volatile Layout layout = new Layout(new ArrayList<>());
+    private final Listener listener = new Listener();
+    private boolean attached = false;
+    private int windowWidth;
+    private int windowHeight;
+
+    // dispatch state; only touched by the window's event thread
+    private Target hovered;
+    private Target captured;
+    private Target keyboard;
+    private int buttonsDown;
+    private double mouseX;
+    private double mouseY;
+
+    /**
+     * Constructs a new GLFXInputRouter and registers its listeners on the
+     * window.
+     *
+     * @param window the window to route input from.
+     * @since 26.10.18
+     */
+    public GLFXInputRouter(final GLWindow window) {
+        this.window = Objects.requireNonNull(window);
+
+        window.getKeyboard().addCharListener(this.listener);
+        window.getKeyboard().addKeyListener(this.listener);
+        window.getMouse().addButtonListener(this.listener);
+        window.getMouse().addPositionListener(this.listener);
+        window.getMouse().addScrollListener(this.listener);
+        window.addWindowResizeListener(this.listener);
+        this.attached = true;
+    }
+
+    /**
+     * Retrieves the window input is routed from.
+     *
+     * @return the window.
+     * @since 26.10.18
+     */
+    public GLWindow getWindow() {
+        return this.window;
+    }
+
+    /**
+     * Sets the size of the window's framebuffer and passes it to every stage
+     * as its parent window size. Later framebuffer resizes are forwarded
+     * automatically; this only needs to be called once with the initial
+     * size.
+     *
+     * @param width the width in pixels.
+     * @param height the height in pixels.
+     * @since 26.10.18
+     */
+    public synchronized void setWindowSize(final int width, final int height) {
+        this.windowWidth = width;
+        this.windowHeight = height;
+
+        for (Entry entry : this.entries) {
+            entry.stage.setParentWindowSize(width, height);
+        }
+    }
+
+    /**
+     * Adds a stage on top of all other stages. The stage is placed at (0, 0)
+     * until a position is set. If the window size is known, it is set as the
+     * stage's parent window size.
+     *
+     * @param stage the stage to add.
+     * @since 26.10.18
+     */
+    public synchronized void add(final GLFXStage stage) {
+        Objects.requireNonNull(stage);
+
+        if (this.find(stage) == null) {
+            this.entries.add(new Entry(stage));
+            stage.addRouter(this);
+
+            if (this.windowWidth > 0 && this.windowHeight > 0) {
+                stage.setParentWindowSize(this.windowWidth, this.windowHeight);
+            }
+
+            this.rebuild();
+        }
+    }
+
+    /**
+     * Removes a stage from the router.
+     *
+     * @param stage the stage to remove.
+     * @since 26.10.18
+     */
+    public synchronized void remove(final GLFXStage stage) {
+        final Entry entry = this.find(stage);
+
+        if (entry != null) {
+            this.entries.remove(entry);
+            stage.removeRouter(this);
+            this.rebuild();
+        }
+    }
+
+    /**
+     * Sets where a stage is drawn in the window.
+     *
+     * @param stage the stage.
+     * @param x the x-offset in pixels from the left of the window.
+     * @param y the y-offset in pixels from the top of the window.
+     * @since 26.10.18
+     */
+    public synchronized void setPosition(final GLFXStage stage, final int x, final int y) {
+        final Entry entry = this.find(stage);
+
+        if (entry == null) {
+            throw new IllegalArgumentException("Stage is not part of this router!");
+        }
+
+        if (entry.x != x || entry.y != y) {
+            entry.x = x;
+            entry.y = y;
+            this.rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds the hit test grid. The grid is rebuilt whenever a stage is
+     * added, removed, moved or resized, so this does not need to be called
+     * for those changes.
+     *
+     * @since 26.10.18
+     */
+    public synchronized void invalidate() {
+        this.rebuild();
+    }
+
+    /**
+     * Removes the router's listeners from the window. The router does not
+     * route any input afterwards.
+     *
+     * @since 26.10.18
+     */
+    public synchronized void removeEvents() {
+        if (!this.attached) {
+            return;
+        }
+
+        this.window.getKeyboard().removeCharListener(this.listener);
+        this.window.getKeyboard().removeKeyListener(this.listener);
+        this.window.getMouse().removeButtonListener(this.listener);
+        this.window.getMouse().removePositionListener(this.listener);
+        this.window.getMouse().removeScrollListener(this.listener);
+        this.window.removeWindowResizeListener(this.listener);
+        this.attached = false;
+    }
+
+    private Entry find(final GLFXStage stage) {
+        for (Entry entry : this.entries) {
+            if (entry.stage == stage) {
+                return entry;
+            }
+        }
+
+        return null;
+    }
+
+    private synchronized void rebuild() {
+        this.layout = new Layout(this.entries);
+    }
+
+    // swaps a target from an older layout for the same stage in the current layout
+    private static Target refresh(final Layout current, final Target target) {
+        return target == null ? null : current.targets.get(target.stage);
+    }
+
+    private void sendMouseMove(final Target target) {
+        target.stage.setWindowOffset(target.x, target.y);
+        target.stage.offerInput(GLFXInputQueue.TYPE_MOUSE_MOVE, 0, 0, 0, 0, this.mouseX - target.x, this.mouseY - target.y);
+    }
+
+    private void updateHover(final Layout current) {
+        final Target picked = current.pick(this.mouseX, this.mouseY);
+        final Target previous = refresh(current, this.hovered);
+
+        if (previous != null && (picked == null || picked.stage != previous.stage)) {
+            // the position is outside of the previous stage; lets it clear its hover state
+            this.sendMouseMove(previous);
+        }
+
+        if (picked != null && (previous == null || picked.stage != previous.stage)) {
+            picked.stage.setCursorWindow(this.window);
+        }
+
+        this.hovered = picked;
+    }
+
+    private void onMouseMove(final double x, final double y) {
+        final Layout current = this.layout;
+
+        this.mouseX = x;
+        this.mouseY = y;
+
+        if (this.captured != null) {
+            this.captured = refresh(current, this.captured);
+
+            if (this.captured != null) {
+                this.sendMouseMove(this.captured);
+                return;
+            }
+        }
+
+        this.updateHover(current);
+
+        if (this.hovered != null) {
+            this.sendMouseMove(this.hovered);
+        }
+    }
+
+    private void onMouseButton(final int button, final GLMouseButtonAction action, final Set<GLKeyModifier> mods) {
+        final Layout current = this.layout;
+        final Target target = this.captured != null
+                ? refresh(current, this.captured)
+                : current.pick(this.mouseX, this.mouseY);
+
+        if (action == GLMouseButtonAction.PRESSED) {
+            this.buttonsDown |= 1 << button;
+            this.captured = target;
+
+            if (target != null) {
+                this.keyboard = target;
+            }
+        } else if (action == GLMouseButtonAction.RELEASED) {
+            this.buttonsDown &= ~(1 << button);
+        }
+
+        if (target != null) {
+            target.stage.offerInput(
+                    GLFXInputQueue.TYPE_MOUSE_BUTTON, button, 0, action.ordinal(), GLFXKeyMap.toGLFWModifiers(mods),
+                    0.0, 0.0);
+        }
+
+        if (this.buttonsDown == 0) {
+            this.captured = null;
+            // the mouse may have been dragged onto another stage
+            this.updateHover(current);
+        }
+    }
+
+    private void onScroll(final double x, final double y) {
+        final Layout current = this.layout;
+        final Target target = refresh(current, this.captured != null ? this.captured : this.hovered);
+
+        if (target != null) {
+            target.stage.offerInput(GLFXInputQueue.TYPE_MOUSE_SCROLL, 0, 0, 0, 0, x, y);
+        }
+    }
+
+    private GLFXStage keyboardStage() {
+        final Layout current = this.layout;
+        // the stage may have been removed since it was pressed
+        final Target target = this.keyboard != null
+                ? refresh(current, this.keyboard)
+                : refresh(current, this.hovered);
+
+        return target != null ? target.stage : null;
+    }
+
+    /**
+     * Tests if any stage wants the input at a window position. Input layers
+     * beneath the stages can use this to skip events the stages consume.
+     *
+     * @param x the x-position in window pixels.
+     * @param y the y-position in window pixels.
+     * @return CONSUME if a stage has content at the position, otherwise
+     * PASS_THROUGH.
+     * @since 26.10.18
+     */
+    public GLFXHitResult hitTest(final double x, final double y) {
+        return this.layout.pick(x, y) != null ? GLFXHitResult.CONSUME : GLFXHitResult.PASS_THROUGH;
+    }
+
+    private final class Listener implements
+            GLKeyListener, GLKeyCharListener,
+            GLMouseButtonListener, GLMousePositionListener, GLMouseScrollListener,
+            GLFramebufferResizeListener {
+
+        @Override
+        public void framebufferResizedActionPerformed(GLWindow glw, GLViewport view) {
+            setWindowSize(view.width, view.height);
+        }
+
+        @Override
+        public void keyActionPerformed(GLWindow glw, int key, int scanCode, GLKeyAction action, Set<GLKeyModifier> modifiers) {
+            final GLFXStage stage = keyboardStage();
+
+            if (stage != null) {
+                stage.offerInput(GLFXInputQueue.TYPE_KEY, key, scanCode, action.ordinal(), GLFXKeyMap.toGLFWModifiers(modifiers), 0.0, 0.0);
+            }
+        }
+
+        @Override
+        public void charTypePerformed(GLWindow glw, char c) {
+            final GLFXStage stage = keyboardStage();
+
+            if (stage != null) {
+                stage.offerInput(GLFXInputQueue.TYPE_CHAR, c, 0, 0, 0, 0.0, 0.0);
+            }
+        }
+
+        @Override
+        public void mouseButtonActionPerformed(GLWindow glw, int button, GLMouseButtonAction action, Set<GLKeyModifier> set) {
+            onMouseButton(button, action, set);
+        }
+
+        @Override
+        public void mousePositionActionPerformed(GLWindow glw, double x, double y) {
+            onMouseMove(x, y);
+        }
+
+        @Override
+        public void mouseScrollActionPerformed(GLWindow glw, double x, double y) {
+            onScroll(x, y);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import com.longlinkislong.gloop.GLKeyModifier;
+import com.sun.glass.events.KeyEvent;
+import com.sun.javafx.embed.AbstractEvents;
+import java.util.Arrays;
+import java.util.Set;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Translates GLFW key codes and modifiers into the key codes and modifiers
+ * expected by an embedded JavaFX scene. The translation table is built once
+ * and each lookup is a single array access.
+ *
+ * @since 26.10.18
+ */
+public final class GLFXKeyMap {
+
+    /**
+     * Returned for GLFW keys that are not forwarded to JavaFX.
+     *
+     * @since 26.10.18
+     */
+    public static final int UNMAPPED = -1;
+
+    private static final int[] KEYS = new int[GLFW.GLFW_KEY_LAST + 1];
+
+    static {
+        Arrays.fill(KEYS, UNMAPPED);
+
+        KEYS[GLFW.GLFW_KEY_SPACE] = KeyEvent.VK_SPACE;
+        KEYS[GLFW.GLFW_KEY_APOSTROPHE] = KeyEvent.VK_QUOTE;
+        KEYS[GLFW.GLFW_KEY_COMMA] = KeyEvent.VK_COMMA;
+        KEYS[GLFW.GLFW_KEY_MINUS] = KeyEvent.VK_MINUS;
+        KEYS[GLFW.GLFW_KEY_PERIOD] = KeyEvent.VK_PERIOD;
+        KEYS[GLFW.GLFW_KEY_SLASH] = KeyEvent.VK_SLASH;
+        KEYS[GLFW.GLFW_KEY_SEMICOLON] = KeyEvent.VK_SEMICOLON;
+        KEYS[GLFW.GLFW_KEY_EQUAL] = KeyEvent.VK_EQUALS;
+        KEYS[GLFW.GLFW_KEY_LEFT_BRACKET] = KeyEvent.VK_OPEN_BRACKET;
+        KEYS[GLFW.GLFW_KEY_BACKSLASH] = KeyEvent.VK_BACK_SLASH;
+        KEYS[GLFW.GLFW_KEY_RIGHT_BRACKET] = KeyEvent.VK_CLOSE_BRACKET;
+        KEYS[GLFW.GLFW_KEY_GRAVE_ACCENT] = KeyEvent.VK_BACK_QUOTE;
+        // the non-US keys have no JavaFX equivalent; forwarded so modifiers still update
+        KEYS[GLFW.GLFW_KEY_WORLD_1] = KeyEvent.VK_UNDEFINED;
+        KEYS[GLFW.GLFW_KEY_WORLD_2] = KeyEvent.VK_UNDEFINED;
+
+        for (int i = 0; i <= 9; i++) {
+            KEYS[GLFW.GLFW_KEY_0 + i] = KeyEvent.VK_0 + i;
+            KEYS[GLFW.GLFW_KEY_KP_0 + i] = KeyEvent.VK_NUMPAD0 + i;
+        }
+
+        for (int i = 0; i < 26; i++) {
+            KEYS[GLFW.GLFW_KEY_A + i] = KeyEvent.VK_A + i;
+        }
+
+        KEYS[GLFW.GLFW_KEY_ESCAPE] = KeyEvent.VK_ESCAPE;
+        KEYS[GLFW.GLFW_KEY_ENTER] = KeyEvent.VK_ENTER;
+        KEYS[GLFW.GLFW_KEY_TAB] = KeyEvent.VK_TAB;
+        KEYS[GLFW.GLFW_KEY_BACKSPACE] = KeyEvent.VK_BACKSPACE;
+        KEYS[GLFW.GLFW_KEY_INSERT] = KeyEvent.VK_INSERT;
+        KEYS[GLFW.GLFW_KEY_DELETE] = KeyEvent.VK_DELETE;
+        KEYS[GLFW.GLFW_KEY_RIGHT] = KeyEvent.VK_RIGHT;
+        KEYS[GLFW.GLFW_KEY_LEFT] = KeyEvent.VK_LEFT;
+        KEYS[GLFW.GLFW_KEY_DOWN] = KeyEvent.VK_DOWN;
+        KEYS[GLFW.GLFW_KEY_UP] = KeyEvent.VK_UP;
+        KEYS[GLFW.GLFW_KEY_PAGE_UP] = KeyEvent.VK_PAGE_UP;
+        KEYS[GLFW.GLFW_KEY_PAGE_DOWN] = KeyEvent.VK_PAGE_DOWN;
+        KEYS[GLFW.GLFW_KEY_HOME] = KeyEvent.VK_HOME;
+        KEYS[GLFW.GLFW_KEY_END] = KeyEvent.VK_END;
+        KEYS[GLFW.GLFW_KEY_CAPS_LOCK] = KeyEvent.VK_CAPS_LOCK;
+        KEYS[GLFW.GLFW_KEY_SCROLL_LOCK] = KeyEvent.VK_SCROLL_LOCK;
+        KEYS[GLFW.GLFW_KEY_NUM_LOCK] = KeyEvent.VK_NUM_LOCK;
+        KEYS[GLFW.GLFW_KEY_PRINT_SCREEN] = KeyEvent.VK_PRINTSCREEN;
+        KEYS[GLFW.GLFW_KEY_PAUSE] = KeyEvent.VK_PAUSE;
+
+        // glass numbers F13 and above separately from F1 - F12
+        for (int i = 0; i < 12; i++) {
+            KEYS[GLFW.GLFW_KEY_F1 + i] = KeyEvent.VK_F1 + i;
+            KEYS[GLFW.GLFW_KEY_F13 + i] = KeyEvent.VK_F13 + i;
+        }
+
+        KEYS[GLFW.GLFW_KEY_F25] = KeyEvent.VK_UNDEFINED;
+
+        KEYS[GLFW.GLFW_KEY_KP_DECIMAL] = KeyEvent.VK_DECIMAL;
+        KEYS[GLFW.GLFW_KEY_KP_DIVIDE] = KeyEvent.VK_DIVIDE;
+        KEYS[GLFW.GLFW_KEY_KP_MULTIPLY] = KeyEvent.VK_MULTIPLY;
+        KEYS[GLFW.GLFW_KEY_KP_SUBTRACT] = KeyEvent.VK_SUBTRACT;
+        KEYS[GLFW.GLFW_KEY_KP_ADD] = KeyEvent.VK_ADD;
+        KEYS[GLFW.GLFW_KEY_KP_ENTER] = KeyEvent.VK_ENTER;
+        KEYS[GLFW.GLFW_KEY_KP_EQUAL] = KeyEvent.VK_EQUALS;
+
+        KEYS[GLFW.GLFW_KEY_LEFT_SHIFT] = KeyEvent.VK_SHIFT;
+        KEYS[GLFW.GLFW_KEY_RIGHT_SHIFT] = KeyEvent.VK_SHIFT;
+        KEYS[GLFW.GLFW_KEY_LEFT_CONTROL] = KeyEvent.VK_CONTROL;
+        KEYS[GLFW.GLFW_KEY_RIGHT_CONTROL] = KeyEvent.VK_CONTROL;
+        KEYS[GLFW.GLFW_KEY_LEFT_ALT] = KeyEvent.VK_ALT;
+        KEYS[GLFW.GLFW_KEY_RIGHT_ALT] = KeyEvent.VK_ALT;
+        KEYS[GLFW.GLFW_KEY_LEFT_SUPER] = KeyEvent.VK_WINDOWS;
+        KEYS[GLFW.GLFW_KEY_RIGHT_SUPER] = KeyEvent.VK_WINDOWS;
+        KEYS[GLFW.GLFW_KEY_MENU] = KeyEvent.VK_CONTEXT_MENU;
+    }
+
+    private GLFXKeyMap() {
+    }
+
+    /**
+     * Translates a GLFW key code into a JavaFX key code.
+     *
+     * @param glfwKey the GLFW key code.
+     * @return the JavaFX key code or UNMAPPED if the key is unknown.
+     * @since 26.10.18
+     */
+    public static int toJavaFXKey(final int glfwKey) {
+        if (glfwKey < 0 || glfwKey >= KEYS.length) {
+            return UNMAPPED;
+        } else {
+            return KEYS[glfwKey];
+        }
+    }
+
+    /**
+     * Converts a set of modifiers into a GLFW modifier bitmask.
+     *
+     * @param modifiers the modifiers.
+     * @return the GLFW_MOD_* bitmask.
+     * @since 26.10.18
+     */
+    public static int toGLFWModifiers(final Set<GLKeyModifier> modifiers) {
+        int mods = 0;
+
+        for (GLKeyModifier modifier : modifiers) {
+            switch (modifier) {
+                case SHIFT:
+                    mods |= GLFW.GLFW_MOD_SHIFT;
+                    break;
+                case CONTROL:
+                    mods |= GLFW.GLFW_MOD_CONTROL;
+                    break;
+                case ALT:
+                    mods |= GLFW.GLFW_MOD_ALT;
+                    break;
+                case SUPER:
+                    mods |= GLFW.GLFW_MOD_SUPER;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        return mods;
+    }
+
+    /**
+     * Translates a GLFW modifier bitmask into a JavaFX modifier bitmask.
+     *
+     * @param glfwModifiers the GLFW_MOD_* bitmask.
+     * @return the AbstractEvents.MODIFIER_* bitmask.
+     * @since 26.10.18
+     */
+    public static int toJavaFXModifiers(final int glfwModifiers) {
+        int mods = 0;
+
+        if ((glfwModifiers & GLFW.GLFW_MOD_SHIFT) != 0) {
+            mods |= AbstractEvents.MODIFIER_SHIFT;
+        }
+
+        if ((glfwModifiers & GLFW.GLFW_MOD_CONTROL) != 0) {
+            mods |= AbstractEvents.MODIFIER_CONTROL;
+        }
+
+        if ((glfwModifiers & GLFW.GLFW_MOD_ALT) != 0) {
+            mods |= AbstractEvents.MODIFIER_ALT;
+        }
+
+        if ((glfwModifiers & GLFW.GLFW_MOD_SUPER) != 0) {
+            mods |= AbstractEvents.MODIFIER_META;
+        }
+
+        return mods;
+    }
+}
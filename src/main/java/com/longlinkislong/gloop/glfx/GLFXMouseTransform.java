@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+/**
+ * An affine transform from window coordinates to stage coordinates. The
+ * transform is applied to each mouse position using only primitive math, so
+ * transforming does not allocate. GLFXMouseTransform is immutable.
+ *
+ * A point is transformed as:
+ * <pre>
+ * x' = m00 * x + m01 * y + m02
+ * y' = m10 * x + m11 * y + m12
+ * </pre>
+ *
+ * @since 26.10.18
+ */
+public final class GLFXMouseTransform {
+
+    /**
+     * The identity transform. Mouse positions are passed through unchanged.
+     *
+     * @since 26.10.18
+     */
+    public static final GLFXMouseTransform IDENTITY = new GLFXMouseTransform();
+
+    /**
+     * The x scale.
+     *
+     * @since 26.10.18
+     */
+    public final double m00;
+    /**
+     * The x shear.
+     *
+     * @since 26.10.18
+     */
+    public final double m01;
+    /**
+     * The x translation.
+     *
+     * @since 26.10.18
+     */
+    public final double m02;
+    /**
+     * The y shear.
+     *
+     * @since 26.10.18
+     */
+    public final double m10;
+    /**
+     * The y scale.
+     *
+     * @since 26.10.18
+     */
+    public final double m11;
+    /**
+     * The y translation.
+     *
+     * @since 26.10.18
+     */
+    public final double m12;
+
+    /**
+     * Constructs the identity transform.
+     *
+     * @since 26.10.18
+     */
+    public GLFXMouseTransform() {
+        this(1.0, 0.0, 0.0, 0.0, 1.0, 0.0);
+    }
+
+    /**
+     * Constructs a new affine transform.
+     *
+     * @param m00 the x scale.
+     * @param m01 the x shear.
+     * @param m02 the x translation.
+     * @param m10 the y shear.
+     * @param m11 the y scale.
+     * @param m12 the y translation.
+     * @since 26.10.18
+     */
+    public GLFXMouseTransform(
+            final double m00, final double m01, final double m02,
+            final double m10, final double m11, final double m12) {
+
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m02 = m02;
+        this.m10 = m10;
+        this.m11 = m11;
+        this.m12 = m12;
+    }
+
+    /**
+     * Creates a new transform that applies this transform and then
+     * translates the result.
+     *
+     * @param tx the x translation.
+     * @param ty the y translation.
+     * @return the new transform.
+     * @since 26.10.18
+     */
+    public GLFXMouseTransform withTranslation(final double tx, final double ty) {
+        return new GLFXMouseTransform(
+                this.m00, this.m01, this.m02 + tx,
+                this.m10, this.m11, this.m12 + ty);
+    }
+
+    /**
+     * Creates a new transform that applies this transform and then scales
+     * the result.
+     *
+     * @param sx the x scale.
+     * @param sy the y scale.
+     * @return the new transform.
+     * @since 26.10.18
+     */
+    public GLFXMouseTransform withScale(final double sx, final double sy) {
+        return new GLFXMouseTransform(
+                this.m00 * sx, this.m01 * sx, this.m02 * sx,
+                this.m10 * sy, this.m11 * sy, this.m12 * sy);
+    }
+
+    /**
+     * Creates the transform that maps stage coordinates back to window
+     * coordinates.
+     *
+     * @return the inverse transform.
+     * @throws IllegalStateException if the transform is not invertible.
+     * @since 26.10.18
+     */
+    public GLFXMouseTransform inverse() {
+        final double det = this.m00 * this.m11 - this.m01 * this.m10;
+
+        if (det == 0.0 || !Double.isFinite(det)) {
+            throw new IllegalStateException("Transform is not invertible!");
+        }
+
+        final double i00 = this.m11 / det;
+        final double i01 = -this.m01 / det;
+        final double i10 = -this.m10 / det;
+        final double i11 = this.m00 / det;
+
+        return new GLFXMouseTransform(
+                i00, i01, -(i00 * this.m02 + i01 * this.m12),
+                i10, i11, -(i10 * this.m02 + i11 * this.m12));
+    }
+
+    /**
+     * Transforms the x-component of a point.
+     *
+     * @param x the x-position in window coordinates.
+     * @param y the y-position in window coordinates.
+     * @return the x-position in stage coordinates.
+     * @since 26.10.18
+     */
+    public double transformX(final double x, final double y) {
+        return this.m00 * x + this.m01 * y + this.m02;
+    }
+
+    /**
+     * Transforms the y-component of a point.
+     *
+     * @param x the x-position in window coordinates.
+     * @param y the y-position in window coordinates.
+     * @return the y-position in stage coordinates.
+     * @since 26.10.18
+     */
+    public double transformY(final double x, final double y) {
+        return this.m10 * x + this.m11 * y + this.m12;
+    }
+
+    @Override
+    public String toString() {
+        return "GLFXMouseTransform: [" + this.m00 + " " + this.m01 + " " + this.m02
+                + "; " + this.m10 + " " + this.m11 + " " + this.m12 + "]";
+    }
+}
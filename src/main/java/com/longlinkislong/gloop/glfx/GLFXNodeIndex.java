@@ -0,0 +1,469 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.ListChangeListener;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.transform.Transform;
+
+/**
+ * An index of the scene bounds of every node in a scene graph. Nodes are
+ * bucketed into a grid of cells so that finding the nodes under a point only
+ * looks at the nodes overlapping a single cell instead of walking the whole
+ * graph.
+ *
+ * Bounds are kept up to date through listeners: a node whose bounds change
+ * is re-indexed on its own and a node that is moved or transformed has its
+ * subtree re-indexed. Adding or removing children only indexes the added
+ * subtrees and drops the removed ones. The index must only be used on the
+ * JavaFX thread.
+ *
+ * @since 26.10.18
+ */
+final class GLFXNodeIndex {
+
+    private static final double CELL_SIZE = 64.0;
+
+    private static final class Entry {
+
+        final Node node;
+        final Entry parent;
+        final int depth;
+        final List<Entry> children = new ArrayList<>();
+        // position among the parent's children; later children are drawn on top of earlier ones
+        int index;
+        double minX;
+        double minY;
+        double maxX;
+        double maxY;
+        int c0 = -1;
+        int r0;
+        int c1;
+        int r1;
+        boolean dirty;
+        boolean dirtySubtree;
+        boolean childrenChanged;
+        boolean removed;
+
+        Entry(final Node node, final Entry parent) {
+            this.node = node;
+            this.parent = parent;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+        }
+
+        boolean contains(final double x, final double y) {
+            return x >= this.minX && y >= this.minY && x <= this.maxX && y <= this.maxY;
+        }
+    }
+
+    private final ChangeListener<Bounds> boundsListener = (observable, oldBounds, newBounds) -> this.markDirty(observable, false);
+    private final ChangeListener<Transform> transformListener = (observable, oldTransform, newTransform) -> this.markDirty(observable, true);
+    private final ListChangeListener<Node> childrenListener = change -> this.markChildrenChanged(change.getList());
+    private final Map<Object, Entry> entriesByProperty = new IdentityHashMap<>();
+    private final List<Entry> dirtyEntries = new ArrayList<>();
+    private final List<Entry> changedParents = new ArrayList<>();
+    private Entry rootEntry;
+    private double originX;
+    private double originY;
+    private int columns;
+    private int rows;
+    private List<Entry>[] cells;
+
+    /**
+     * Finds the topmost visible node under a point.
+     *
+     * @param root the root of the scene graph.
+     * @param sceneX the x-position in scene coordinates.
+     * @param sceneY the y-position in scene coordinates.
+     * @return the node or null if no node other than the root is under the
+     * point.
+     */
+    Node pick(final Parent root, final double sceneX, final double sceneY) {
+        final Entry entry = this.pickEntry(root, sceneX, sceneY);
+
+        return entry != null ? entry.node : null;
+    }
+
+    /**
+     * Calls the consumer for each node on the path from the root to the
+     * topmost node under a point, excluding the root. Nodes are visited from
+     * the outermost to the innermost.
+     *
+     * @param root the root of the scene graph.
+     * @param sceneX the x-position in scene coordinates.
+     * @param sceneY the y-position in scene coordinates.
+     * @param onUnder the consumer.
+     */
+    void forAllUnder(final Parent root, final double sceneX, final double sceneY, final Consumer<Node> onUnder) {
+        final Entry picked = this.pickEntry(root, sceneX, sceneY);
+
+        if (picked != null) {
+            visitPath(picked, onUnder);
+        }
+    }
+
+    private static void visitPath(final Entry entry, final Consumer<Node> onUnder) {
+        // the root entry has no parent and is not visited
+        if (entry.parent == null) {
+            return;
+        }
+
+        visitPath(entry.parent, onUnder);
+        onUnder.accept(entry.node);
+    }
+
+    private Entry pickEntry(final Parent root, final double sceneX, final double sceneY) {
+        if (root == null) {
+            return null;
+        }
+
+        this.update(root);
+
+        final List<Entry> cell = this.cells[this.cellIndex(sceneX, sceneY)];
+        Entry best = null;
+
+        for (Entry entry : cell) {
+            if (entry.parent == null || !entry.contains(sceneX, sceneY) || (best != null && !isAbove(entry, best))) {
+                continue;
+            }
+
+            if (isUnder(entry, sceneX, sceneY)) {
+                best = entry;
+            }
+        }
+
+        return best;
+    }
+
+    // a node only receives the point if it and every ancestor contain it
+    private static boolean isUnder(final Entry entry, final double sceneX, final double sceneY) {
+        for (Entry e = entry; e != null; e = e.parent) {
+            if (e.parent != null && (!e.node.isVisible() || e.node.isMouseTransparent())) {
+                return false;
+            } else if (!e.contains(sceneX, sceneY) || !e.node.contains(e.node.sceneToLocal(sceneX, sceneY, true))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isAbove(final Entry a, final Entry b) {
+        Entry x = a;
+        Entry y = b;
+
+        while (x.depth > y.depth) {
+            x = x.parent;
+        }
+
+        while (y.depth > x.depth) {
+            y = y.parent;
+        }
+
+        if (x == y) {
+            // a node is drawn above its ancestors
+            return a.depth > b.depth;
+        }
+
+        while (x.parent != y.parent) {
+            x = x.parent;
+            y = y.parent;
+        }
+
+        return x.index > y.index;
+    }
+
+    private void markDirty(final Object observable, final boolean subtree) {
+        final Entry entry = this.entriesByProperty.get(observable);
+
+        if (entry == null) {
+            return;
+        }
+
+        if (!entry.dirty) {
+            entry.dirty = true;
+            this.dirtyEntries.add(entry);
+        }
+
+        // a transform moves every descendant; a bounds change only affects the node
+        entry.dirtySubtree |= subtree;
+    }
+
+    private void markChildrenChanged(final Object children) {
+        final Entry entry = this.entriesByProperty.get(children);
+
+        if (entry != null && !entry.childrenChanged) {
+            entry.childrenChanged = true;
+            this.changedParents.add(entry);
+        }
+    }
+
+    private void update(final Parent newRoot) {
+        if (this.rootEntry == null || this.rootEntry.node != newRoot) {
+            this.rebuild(newRoot);
+            return;
+        } else if (this.rootEntry.dirty && this.isGridOutdated(newRoot)) {
+            this.rebuild(newRoot);
+            return;
+        }
+
+        for (int i = 0; i < this.changedParents.size(); i++) {
+            final Entry parent = this.changedParents.get(i);
+
+            parent.childrenChanged = false;
+
+            if (!parent.removed) {
+                this.updateChildren(parent);
+            }
+        }
+
+        this.changedParents.clear();
+
+        for (Entry entry : this.dirtyEntries) {
+            if (!entry.removed) {
+                if (entry.dirtySubtree) {
+                    this.reindexSubtree(entry);
+                } else {
+                    this.reindex(entry);
+                }
+            }
+
+            entry.dirty = false;
+            entry.dirtySubtree = false;
+        }
+
+        this.dirtyEntries.clear();
+    }
+
+    private boolean isGridOutdated(final Parent newRoot) {
+        // the grid covers the root's bounds; a new grid is only needed when they change
+        final Bounds rootBounds = newRoot.localToScene(newRoot.getBoundsInLocal());
+
+        return rootBounds.getMinX() != this.originX
+                || rootBounds.getMinY() != this.originY
+                || Math.max(1, (int) Math.ceil(rootBounds.getWidth() / CELL_SIZE)) != this.columns
+                || Math.max(1, (int) Math.ceil(rootBounds.getHeight() / CELL_SIZE)) != this.rows;
+    }
+
+    private void rebuild(final Parent newRoot) {
+        this.clear();
+
+        final Bounds rootBounds = newRoot.localToScene(newRoot.getBoundsInLocal());
+
+        this.originX = rootBounds.getMinX();
+        this.originY = rootBounds.getMinY();
+        this.columns = Math.max(1, (int) Math.ceil(rootBounds.getWidth() / CELL_SIZE));
+        this.rows = Math.max(1, (int) Math.ceil(rootBounds.getHeight() / CELL_SIZE));
+
+        @SuppressWarnings("unchecked")
+        final List<Entry>[] newCells = new List[this.columns * this.rows];
+
+        for (int i = 0; i < newCells.length; i++) {
+            newCells[i] = new ArrayList<>();
+        }
+
+        this.cells = newCells;
+        this.rootEntry = this.add(newRoot, null);
+    }
+
+    private Entry add(final Node node, final Entry parent) {
+        final Entry entry = new Entry(node, parent);
+
+        if (parent != null) {
+            entry.index = parent.children.size();
+            parent.children.add(entry);
+        }
+
+        this.entriesByProperty.put(node.boundsInLocalProperty(), entry);
+        this.entriesByProperty.put(node.localToParentTransformProperty(), entry);
+        node.boundsInLocalProperty().addListener(this.boundsListener);
+        node.localToParentTransformProperty().addListener(this.transformListener);
+        this.reindex(entry);
+
+        if (node instanceof Parent) {
+            final List<Node> children = ((Parent) node).getChildrenUnmodifiable();
+
+            this.entriesByProperty.put(children, entry);
+            children.addListener(this.childrenListener);
+
+            for (Node child : children) {
+                this.add(child, entry);
+            }
+        }
+
+        return entry;
+    }
+
+    private void updateChildren(final Entry parent) {
+        final Map<Node, Entry> previous = new IdentityHashMap<>();
+
+        for (Entry child : parent.children) {
+            previous.put(child.node, child);
+        }
+
+        parent.children.clear();
+
+        // children that are still present keep their entries; only new subtrees are indexed
+        for (Node node : ((Parent) parent.node).getChildrenUnmodifiable()) {
+            final Entry child = previous.remove(node);
+
+            if (child != null) {
+                child.index = parent.children.size();
+                parent.children.add(child);
+            } else {
+                this.add(node, parent);
+            }
+        }
+
+        for (Entry child : previous.values()) {
+            this.remove(child);
+        }
+    }
+
+    private void remove(final Entry entry) {
+        entry.removed = true;
+
+        for (Entry child : entry.children) {
+            this.remove(child);
+        }
+
+        if (entry.c0 >= 0) {
+            for (int r = entry.r0; r <= entry.r1; r++) {
+                for (int c = entry.c0; c <= entry.c1; c++) {
+                    this.cells[r * this.columns + c].remove(entry);
+                }
+            }
+        }
+
+        this.detach(entry);
+    }
+
+    private void detach(final Entry entry) {
+        final Node node = entry.node;
+
+        node.boundsInLocalProperty().removeListener(this.boundsListener);
+        node.localToParentTransformProperty().removeListener(this.transformListener);
+        // a node moved to another parent may already have a new entry
+        this.entriesByProperty.remove(node.boundsInLocalProperty(), entry);
+        this.entriesByProperty.remove(node.localToParentTransformProperty(), entry);
+
+        if (node instanceof Parent) {
+            final List<Node> children = ((Parent) node).getChildrenUnmodifiable();
+
+            children.removeListener(this.childrenListener);
+            this.entriesByProperty.remove(children, entry);
+        }
+    }
+
+    private void reindexSubtree(final Entry entry) {
+        this.reindex(entry);
+
+        for (Entry child : entry.children) {
+            this.reindexSubtree(child);
+        }
+    }
+
+    private void reindex(final Entry entry) {
+        final Bounds bounds = entry.node.localToScene(entry.node.getBoundsInLocal(), true);
+
+        entry.minX = bounds.getMinX();
+        entry.minY = bounds.getMinY();
+        entry.maxX = bounds.getMaxX();
+        entry.maxY = bounds.getMaxY();
+
+        final int c0 = this.column(entry.minX);
+        final int r0 = this.row(entry.minY);
+        final int c1 = this.column(entry.maxX);
+        final int r1 = this.row(entry.maxY);
+
+        if (c0 == entry.c0 && r0 == entry.r0 && c1 == entry.c1 && r1 == entry.r1) {
+            return;
+        }
+
+        if (entry.c0 >= 0) {
+            for (int r = entry.r0; r <= entry.r1; r++) {
+                for (int c = entry.c0; c <= entry.c1; c++) {
+                    this.cells[r * this.columns + c].remove(entry);
+                }
+            }
+        }
+
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                this.cells[r * this.columns + c].add(entry);
+            }
+        }
+
+        entry.c0 = c0;
+        entry.r0 = r0;
+        entry.c1 = c1;
+        entry.r1 = r1;
+    }
+
+    // positions outside of the root's bounds are clamped to the edge cells
+    private int column(final double sceneX) {
+        return Math.max(0, Math.min(this.columns - 1, (int) Math.floor((sceneX - this.originX) / CELL_SIZE)));
+    }
+
+    private int row(final double sceneY) {
+        return Math.max(0, Math.min(this.rows - 1, (int) Math.floor((sceneY - this.originY) / CELL_SIZE)));
+    }
+
+    private int cellIndex(final double sceneX, final double sceneY) {
+        return this.row(sceneY) * this.columns + this.column(sceneX);
+    }
+
+    /**
+     * Removes all listeners from the scene graph and drops every entry.
+     */
+    void clear() {
+        if (this.rootEntry != null) {
+            this.clear(this.rootEntry);
+            this.rootEntry = null;
+        }
+
+        this.entriesByProperty.clear();
+        this.dirtyEntries.clear();
+        this.changedParents.clear();
+    }
+
+    private void clear(final Entry entry) {
+        entry.removed = true;
+        this.detach(entry);
+
+        for (Entry child : entry.children) {
+            this.clear(child);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.imageio.ImageIO;
+
+/**
+ * A GLFXFrameSink that writes every frame as a numbered PNG file. Frames are
+ * converted into one of a fixed set of reusable images and encoded on a pool
+ * of worker threads. Once every image is waiting to be encoded, writeFrame
+ * blocks until one is free.
+ *
+ * @since 26.10.18
+ */
+public final class GLFXPngFrameSink implements GLFXFrameSink {
+
+    /**
+     * The time close waits for the encoders when no timeout is given.
+     *
+     * @since 26.10.18
+     */
+    public static final long DEFAULT_CLOSE_TIMEOUT_SECONDS = 30L;
+
+    private final Path directory;
+    private final String prefix;
+    private final ExecutorService encoders;
+    private final BlockingQueue<BufferedImage> freeImages;
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+    /**
+     * Constructs a new GLFXPngFrameSink that encodes on one thread per
+     * available processor.
+     *
+     * @param directory the directory to write to.
+     * @param prefix the file name prefix.
+     * @since 26.10.18
+     */
+    public GLFXPngFrameSink(final Path directory, final String prefix) {
+        this(directory, prefix, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a new GLFXPngFrameSink. Frames are written to
+     * {@code prefix-000000.png}, {@code prefix-000001.png} and so on.
+     *
+     * @param directory the directory to write to.
+     * @param prefix the file name prefix.
+     * @param threads the number of encoding threads.
+     * @since 26.10.18
+     */
+    public GLFXPngFrameSink(final Path directory, final String prefix, final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count [" + threads + "] must be at least 1!");
+        }
+
+        this.directory = directory;
+        this.prefix = prefix;
+        this.encoders = Executors.newFixedThreadPool(threads, task -> {
+            final Thread t = new Thread(task);
+
+            t.setDaemon(true);
+            t.setName("GLFXPngFrameSink - Encoder Thread");
+            return t;
+        });
+
+        // one image being filled while every thread encodes
+        this.freeImages = new ArrayBlockingQueue<>(threads + 1);
+
+        for (int i = 0; i <= threads; i++) {
+            this.freeImages.add(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB));
+        }
+    }
+
+    @Override
+    public void writeFrame(final ByteBuffer pixels, final int width, final int height, final long frameNumber) throws IOException {
+        final IOException previous = this.failure.get();
+
+        if (previous != null) {
+            throw previous;
+        }
+
+        final BufferedImage pooled;
+
+        try {
+            pooled = this.freeImages.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an encoder!", ex);
+        }
+
+        final BufferedImage image = pooled.getWidth() == width && pooled.getHeight() == height
+                ? pooled
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+        unpremultiply(pixels, ((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+
+        final Path file = this.directory.resolve(String.format("%s-%06d.png", this.prefix, frameNumber));
+
+        this.encoders.execute(() -> {
+            try {
+                if (!ImageIO.write(image, "png", file.toFile())) {
+                    throw new IOException("No PNG encoder is available!");
+                }
+            } catch (IOException ex) {
+                this.failure.compareAndSet(null, ex);
+            } finally {
+                this.freeImages.add(image);
+            }
+        });
+    }
+
+    private static void unpremultiply(final ByteBuffer pixels, final int[] argb) {
+        // little-endian BGRA bytes read as 0xAARRGGBB
+        final ByteBuffer src = pixels.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        final int base = src.position();
+
+        for (int i = 0; i < argb.length; i++) {
+            final int pixel = src.getInt(base + i * Integer.BYTES);
+            final int a = pixel >>> 24;
+
+            if (a == 0 || a == 0xFF) {
+                argb[i] = a == 0 ? 0 : pixel;
+            } else {
+                final int r = Math.min(0xFF, ((pixel >>> 16) & 0xFF) * 0xFF / a);
+                final int g = Math.min(0xFF, ((pixel >>> 8) & 0xFF) * 0xFF / a);
+                final int b = Math.min(0xFF, (pixel & 0xFF) * 0xFF / a);
+
+                argb[i] = (a << 24) | (r << 16) | (g << 8) | b;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.close(DEFAULT_CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Waits for the pending frames to be encoded and stops the encoders.
+     * Frames not encoded in time are dropped.
+     *
+     * @param timeout the longest time to wait for the encoders.
+     * @param unit the unit of the timeout.
+     * @throws IOException if a frame could not be written or the encoders did
+     * not finish in time.
+     * @since 26.10.18
+     */
+    public void close(final long timeout, final TimeUnit unit) throws IOException {
+        this.encoders.shutdown();
+
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean isInterrupted = false;
+        boolean terminated = false;
+
+        while (!terminated) {
+            final long remaining = deadline - System.nanoTime();
+
+            if (remaining <= 0L) {
+                break;
+            }
+
+            try {
+                terminated = this.encoders.awaitTermination(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                isInterrupted = true;
+            }
+        }
+
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!terminated) {
+            this.encoders.shutdownNow();
+            throw new IOException("Encoders did not finish within [" + timeout + " " + unit + "]!");
+        }
+
+        final IOException ex = this.failure.get();
+
+        if (ex != null) {
+            throw ex;
+        }
+    }
+}
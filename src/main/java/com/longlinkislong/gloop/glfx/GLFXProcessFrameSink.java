@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A GLFXFrameSink that pipes raw frames to the standard input of an external
+ * process, such as a video encoder. The pixels are written as is; an ffmpeg
+ * command would read them with {@code -f rawvideo -pixel_format bgra
+ * -video_size WxH -i -}. Every frame must have the same size.
+ *
+ * @since 26.10.18
+ */
+public final class GLFXProcessFrameSink implements GLFXFrameSink {
+
+    /**
+     * The time close waits for the process to exit when no timeout is given.
+     *
+     * @since 26.10.18
+     */
+    public static final long DEFAULT_CLOSE_TIMEOUT_SECONDS = 30L;
+
+    private final Process process;
+    private final WritableByteChannel channel;
+    private int width = -1;
+    private int height = -1;
+
+    /**
+     * Starts the process and constructs a new GLFXProcessFrameSink writing to
+     * it. The output of the process is not read; redirect it in the process
+     * builder if the process writes a lot of output.
+     *
+     * @param processBuilder the builder for the process.
+     * @throws IOException if the process could not be started.
+     * @since 26.10.18
+     */
+    public GLFXProcessFrameSink(final ProcessBuilder processBuilder) throws IOException {
+        this.process = processBuilder.start();
+        this.channel = Channels.newChannel(this.process.getOutputStream());
+    }
+
+    @Override
+    public void writeFrame(final ByteBuffer pixels, final int width, final int height, final long frameNumber) throws IOException {
+        if (this.width < 0) {
+            this.width = width;
+            this.height = height;
+        } else if (width != this.width || height != this.height) {
+            throw new IOException("Frame size [" + width + ", " + height + "] differs from the stream size [" + this.width + ", " + this.height + "]!");
+        }
+
+        final ByteBuffer src = pixels.duplicate();
+
+        while (src.hasRemaining()) {
+            this.channel.write(src);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.close(DEFAULT_CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Closes the standard input of the process and waits for it to exit. A
+     * process that does not exit in time is killed.
+     *
+     * @param timeout the longest time to wait for the process.
+     * @param unit the unit of the timeout.
+     * @throws IOException if the process did not exit in time or exited with
+     * an error.
+     * @since 26.10.18
+     */
+    public void close(final long timeout, final TimeUnit unit) throws IOException {
+        // closing standard input signals the end of the stream
+        this.channel.close();
+
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean isInterrupted = false;
+        boolean exited = false;
+
+        while (!exited) {
+            final long remaining = deadline - System.nanoTime();
+
+            if (remaining <= 0L) {
+                break;
+            }
+
+            try {
+                exited = this.process.waitFor(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                isInterrupted = true;
+            }
+        }
+
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!exited) {
+            this.process.destroyForcibly();
+            throw new IOException("Process did not exit within [" + timeout + " " + unit + "]!");
+        }
+
+        if (this.process.exitValue() != 0) {
+            throw new IOException("Process exited with [" + this.process.exitValue() + "]!");
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import com.longlinkislong.gloop.GLMat4D;
+
+/**
+ * Orthographic projections for drawing in window pixels with y pointing down.
+ * Such a projection always translates by (-1, 1), so a resize only changes
+ * its scale and can be applied to an existing matrix without allocating.
+ *
+ * @since 26.10.18
+ */
+final class GLFXProjection {
+
+    private GLFXProjection() {
+    }
+
+    /**
+     * Creates a projection that can be updated by setOrtho.
+     *
+     * @return a new projection mapping [0, 1] x [0, 1] onto clip space.
+     */
+    static GLMat4D newOrtho() {
+        return GLMat4D.ortho(0.0, 1.0, 1.0, 0.0, -1.0, 1.0).asStaticMat();
+    }
+
+    /**
+     * Updates a projection created by newOrtho. The result equals
+     * GLMat4D.ortho(0, right, bottom, 0, -1, 1).
+     *
+     * @param projection the projection to update.
+     * @param right the x-coordinate mapped to the right edge of clip space.
+     * @param bottom the y-coordinate mapped to the bottom edge of clip space.
+     */
+    static void setOrtho(final GLMat4D projection, final double right, final double bottom) {
+        projection.set(0, 0, 2.0 / right);
+        projection.set(1, 1, -2.0 / bottom);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A GLFXFrameSink that appends raw frames to a file. Each frame is stored as
+ * its width and height as little-endian ints followed by its pixels. The
+ * header and the pixels are written with a single gathering write; the
+ * recorder's pooled buffers are direct, so the pixels reach the file without
+ * another copy on the Java side.
+ *
+ * @since 26.10.18
+ */
+public final class GLFXRawFrameSink implements GLFXFrameSink {
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    private final FileChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocateDirect(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    // reused for every gathering write; only the pixel buffer changes
+    private final ByteBuffer[] record = new ByteBuffer[2];
+
+    /**
+     * Constructs a new GLFXRawFrameSink. Any existing file is replaced.
+     *
+     * @param file the file to write to.
+     * @throws IOException if the file could not be opened.
+     * @since 26.10.18
+     */
+    public GLFXRawFrameSink(final Path file) throws IOException {
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public void writeFrame(final ByteBuffer pixels, final int width, final int height, final long frameNumber) throws IOException {
+        final int position = pixels.position();
+
+        this.header.clear();
+        this.header.putInt(width).putInt(height).flip();
+        this.record[0] = this.header;
+        this.record[1] = pixels;
+
+        try {
+            while (this.header.hasRemaining() || pixels.hasRemaining()) {
+                this.channel.write(this.record);
+            }
+        } finally {
+            // the caller's buffer is left as it was passed in
+            pixels.position(position);
+            this.record[1] = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
@@ -63,66 +63,60 @@ import com.longlinkislong.gloop.GLVertexAttributeType;
 import com.longlinkislong.gloop.GLVertexAttributes;
 import com.longlinkislong.gloop.GLViewport;
 import com.longlinkislong.gloop.GLWindow;
+import com.longlinkislong.gloop.IndirectSurface;
 import com.runouw.util.Lazy;
 import com.runouw.util.Replaceable;
 import com.sun.javafx.application.PlatformImpl;
 import com.sun.javafx.cursor.CursorFrame;
 import com.sun.javafx.cursor.CursorType;
+import com.sun.javafx.cursor.ImageCursorFrame;
 import com.sun.javafx.embed.AbstractEvents;
 import com.sun.javafx.embed.EmbeddedSceneInterface;
 import com.sun.javafx.embed.EmbeddedStageInterface;
 import com.sun.javafx.embed.HostInterface;
 import com.sun.javafx.stage.EmbeddedWindow;
+import com.sun.javafx.tk.TKPulseListener;
 import com.sun.javafx.tk.Toolkit;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.event.Event;
+import javafx.event.EventTarget;
 import javafx.scene.Group;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.input.PickResult;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.Pane;
 import org.lwjgl.glfw.GLFW;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_BACKSPACE;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_CAPS_LOCK;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_DELETE;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_DOWN;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_END;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_ENTER;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_ESCAPE;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_F1;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_F25;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_HOME;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_INSERT;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_KP_0;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_KP_9;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_LEFT;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_LEFT_ALT;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_LEFT_CONTROL;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_LEFT_SHIFT;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_NUM_LOCK;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_PAGE_DOWN;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_PAGE_UP;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_PAUSE;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_PRINT_SCREEN;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_RIGHT;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_RIGHT_ALT;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_RIGHT_CONTROL;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_RIGHT_SHIFT;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_SCROLL_LOCK;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_TAB;
-import static org.lwjgl.glfw.GLFW.GLFW_KEY_UP;
+import org.lwjgl.opengl.EXTTextureCompressionS3TC;
+import org.lwjgl.opengl.EXTTextureFilterAnisotropic;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengles.GLES;
+import org.lwjgl.opengles.GLES20;
 import org.lwjgl.system.MemoryUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -152,35 +146,47 @@ public class GLFXStage extends GLObject {
         return (p) -> p;
     });
 
+    // used instead of mouseTransform when set; transforms without allocating
+    private volatile GLFXMouseTransform affineMouseTransform = GLFXMouseTransform.IDENTITY;
+
     public void setMouseTransform(Function<GLVec2D, GLVec2D> transformFunc){
         mouseTransform.set(transformFunc);
+        this.affineMouseTransform = null;
     }
 
-    private class MousePos {
-
-        double x;
-        double y;
-
-        MousePos(double x, double y) {
-            this.x = x;
-            this.y = y;
-        }
+    /**
+     * Sets an affine transform from window coordinates to stage coordinates.
+     * Unlike a transform function, an affine transform is applied without
+     * allocating. Replaces any transform function.
+     *
+     * @param transform the mouse transform.
+     * @since 26.10.18
+     */
+    public void setMouseTransform(final GLFXMouseTransform transform) {
+        this.affineMouseTransform = Objects.requireNonNull(transform);
     }
 
-    private MousePos transformMouse(double x, double y) {
-        final GLVec2D mousePos = mouseTransform.get().apply(GLVec2D.create(x, y));
+    private void transformMouse(double x, double y) {
+        final GLFXMouseTransform affine = this.affineMouseTransform;
 
-        x = mousePos.x();
-        y = mousePos.y();
+        if (affine != null) {
+            this.mouseX = (int) affine.transformX(x, y);
+            this.mouseY = (int) affine.transformY(x, y);
+        } else {
+            final GLVec2D mousePos = mouseTransform.get().apply(GLVec2D.create(x, y));
 
-        return new MousePos(x, y);
+            this.mouseX = (int) mousePos.x();
+            this.mouseY = (int) mousePos.y();
+        }
     }
 
     private int windowWidth;
     private int windowHeight;
     private int width;
     private int height;
-    private final GLMat4D projection = GLMat4D.ortho(0.0, 1.0, 1.0, 0.0, 0.0, 1.0).asStaticMat();
+    private final GLMat4D projection = GLFXProjection.newOrtho();
+    // set whenever the stage or window size changes; the projection is only recalculated then
+    private volatile boolean projectionChanged = true;
     private boolean focus = true;
     private boolean applyCursors = true;
     private CursorType cursorType = CursorType.DEFAULT;
@@ -225,9 +231,53 @@ public class GLFXStage extends GLObject {
     private volatile EmbeddedWindow stage;
     private EmbeddedSceneInterface emScene;
     private EmbeddedStageInterface emStage;
-    private float scaleFactor = 1f;
+    private volatile float scaleFactor = 1f;
+    // the size of the captured frame; the stage size multiplied by the render scale
+    private volatile int pixelWidth;
+    private volatile int pixelHeight;
     private GLTexture texture;
+    private int textureWidth;
+    private int textureHeight;
+    private boolean textureHeadroom = false;
+    private volatile GLFXBlendMode blendMode = GLFXBlendMode.UNCHANGED;
+    private volatile GLFXSampling sampling = GLFXSampling.LINEAR;
+    private volatile boolean srgbStorage = false;
+    private GLTextureInternalFormat textureFormat = GLTextureInternalFormat.GL_RGBA8;
+    private volatile boolean mipmapped = false;
+    private volatile float anisotropy = 1f;
+    private volatile long mipmapInterval = TimeUnit.MILLISECONDS.toNanos(100L);
+    private int textureLevels = 1;
+    private GLTextureParameters textureParameters;
+    private boolean textureParametersMipmapped;
+    private float textureParametersAnisotropy;
+    private boolean mipmapsStale = false;
+    private long lastMipmapTime = 0L;
+    private volatile int idleCompressionThreshold = 0;
+    private volatile boolean compressed = false;
+    private volatile boolean compressing = false;
+    private boolean compressionUnsupported = false;
+    private int stableUpdates = 0;
+    // incremented by every upload; an encoded frame is dropped if an upload happened while it was encoded
+    private long uploadGeneration = 0L;
+    private final AtomicReference<CompressedFrame> encodedFrame = new AtomicReference<>();
+    private float maxU = 1f;
+    private float maxV = 1f;
     private volatile ByteBuffer tBuffer;
+    // a view of tBuffer for capturing
+    private IntBuffer tPixels;
+    private ByteBuffer uBuffer;
+    private boolean dirtyRegionTracking = false;
+    private GLFXUploadMode uploadMode = GLFXUploadMode.DIRECT;
+    private final GLFXDirtyRegionTracker dirtyRegions = new GLFXDirtyRegionTracker();
+    private final GLFXStageStats stats = new GLFXStageStats();
+    private final GLFXHitMask hitMask = new GLFXHitMask();
+    private final GLFXNodeIndex nodeIndex = new GLFXNodeIndex();
+    private volatile GLFXDragContext dragContext = GLFXDragContext.SHARED;
+    private volatile boolean hitTesting = false;
+    private final GLFXInputQueue inputQueue = new GLFXInputQueue(GLFXInputQueue.DEFAULT_CAPACITY, this.stats, this::dispatchInput);
+    private final Lazy<GLFXStreamingUploader> streamingUploader = new Lazy<>(()
+            -> new GLFXStreamingUploader(this.getThread(), GLFXStreamingUploader.DEFAULT_RING_SIZE));
+    private boolean streamingUnsupported = false;
     private final Lazy<GLBuffer> vPos = new Lazy<>(() -> {
         final GLBuffer verts = new GLBuffer();
 
@@ -246,17 +296,17 @@ public class GLFXStage extends GLObject {
         final GLBuffer texCoord = new GLBuffer();
 
         texCoord.setName("GLFX3DStage.vUVs");
-        texCoord.allocate(2 * 4 * Float.BYTES, GLBufferUsage.GL_STATIC_DRAW);
+        texCoord.allocate(2 * 4 * Float.BYTES, GLBufferUsage.GL_DYNAMIC_DRAW);
         texCoord.upload(GLTools.wrapFloat(
                 0f, 0f,
-                0f, 1f,
-                1f, 0f,
-                1f, 1f));
+                0f, maxV,
+                maxU, 0f,
+                maxU, maxV));
 
         return texCoord;
     });
 
-    private static final GLVertexAttributes ATTRIBUTES;
+    static final GLVertexAttributes ATTRIBUTES;
 
     static {
         ATTRIBUTES = new GLVertexAttributes();
@@ -264,8 +314,49 @@ public class GLFXStage extends GLObject {
         ATTRIBUTES.setAttribute("vUVs", 1);
     }
 
-    private static final Lazy<GLProgram> PROGRAM = new Lazy<>(() -> {
+    // fragment shader variants, indexed by the bits below
+    private static final int VARIANT_BICUBIC = 0x1;
+    private static final int VARIANT_STRAIGHT_ALPHA = 0x2;
+    @SuppressWarnings("unchecked")
+    private static final Lazy<GLProgram>[] PROGRAM_VARIANTS = new Lazy[4];
+
+    static {
+        for (int i = 0; i < PROGRAM_VARIANTS.length; i++) {
+            final int variant = i;
+
+            PROGRAM_VARIANTS[i] = new Lazy<>(() -> loadProgram(variant));
+        }
+    }
+
+    static final Lazy<GLProgram> PROGRAM = PROGRAM_VARIANTS[0];
+
+    private static final Lazy<Float> MAX_ANISOTROPY = new Lazy<>(() -> {
+        switch (GLWindow.CLIENT_API) {
+            case OPENGL:
+                return GL.getCapabilities().GL_EXT_texture_filter_anisotropic
+                        ? GL11.glGetFloat(EXTTextureFilterAnisotropic.GL_MAX_TEXTURE_MAX_ANISOTROPY_EXT)
+                        : 1f;
+            case OPENGLES:
+                return GLES.getCapabilities().GL_EXT_texture_filter_anisotropic
+                        ? GLES20.glGetFloat(EXTTextureFilterAnisotropic.GL_MAX_TEXTURE_MAX_ANISOTROPY_EXT)
+                        : 1f;
+            default:
+                return 1f;
+        }
+    });
+
+    private static final Lazy<Boolean> S3TC_SUPPORTED = new Lazy<>(() -> {
+        switch (GLWindow.CLIENT_API) {
+            case OPENGL:
+                return GL.getCapabilities().GL_EXT_texture_compression_s3tc;
+            case OPENGLES:
+                return GLES.getCapabilities().GL_EXT_texture_compression_s3tc;
+            default:
+                return false;
+        }
+    });
 
+    private static GLProgram loadProgram(final int variant) {
         final String vertexShader;
         final String fragmentShader;
 
@@ -285,14 +376,14 @@ public class GLFXStage extends GLObject {
         try (InputStream inVsh = GLFXStage.class.getResourceAsStream(vertexShader);
                 InputStream inFsh = GLFXStage.class.getResourceAsStream(fragmentShader)) {
             final String srcVsh = GLTools.readAll(inVsh);
-            final String srcFsh = GLTools.readAll(inFsh);
+            final String srcFsh = withDefines(GLTools.readAll(inFsh), variant);
 
             final GLShader shVsh = new GLShader(GLShaderType.GL_VERTEX_SHADER, srcVsh);
             final GLShader shFsh = new GLShader(GLShaderType.GL_FRAGMENT_SHADER, srcFsh);
 
             final GLProgram program = new GLProgram();
 
-            program.setName("GLFX3DStage.PROGRAM");
+            program.setName(variant == 0 ? "GLFX3DStage.PROGRAM" : "GLFX3DStage.PROGRAM[" + variant + "]");
             program.setVertexAttributes(ATTRIBUTES);
             program.linkShaders(shVsh, shFsh);
 
@@ -305,7 +396,30 @@ public class GLFXStage extends GLObject {
         } catch (IOException ioex) {
             throw new GLException("Unable to load shaders!", ioex);
         }
-    });
+    }
+
+    private static String withDefines(final String source, final int variant) {
+        if (variant == 0) {
+            return source;
+        }
+
+        final StringBuilder defines = new StringBuilder();
+
+        if ((variant & VARIANT_BICUBIC) != 0) {
+            defines.append("#define BICUBIC\n");
+        }
+
+        if ((variant & VARIANT_STRAIGHT_ALPHA) != 0) {
+            defines.append("#define STRAIGHT_ALPHA\n");
+        }
+
+        // defines must follow the #version directive
+        final int versionEnd = source.indexOf('\n') + 1;
+
+        return source.substring(0, versionEnd) + defines + source.substring(versionEnd);
+    }
+
+    private final Lazy<GLTask> drawTask = new Lazy<>(this::newDrawTask);
 
     private final Lazy<GLVertexArray> vao = new Lazy<>(() -> {
         final GLVertexArray vaoObj = new GLVertexArray(this.getThread());
@@ -362,7 +476,22 @@ public class GLFXStage extends GLObject {
 
         @Override
         public void repaint() {
+            if (GLFXStage.this.needsUpdate) {
+                GLFXStage.this.stats.recordCoalescedRepaint();
+            }
+
             GLFXStage.this.needsUpdate = true;
+
+            if (GLFXStage.this.asyncCapture) {
+                GLFXStage.this.tryAsyncCapture();
+            }
+
+            if (GLFXStage.this.headless) {
+                synchronized (GLFXStage.this.pulseLock) {
+                    GLFXStage.this.repaintCount++;
+                    GLFXStage.this.pulseLock.notifyAll();
+                }
+            }
         }
 
         @Override
@@ -380,7 +509,7 @@ public class GLFXStage extends GLObject {
 
             GLFXStage.this.cursorType = cursorFrame.getCursorType();
 
-            if (applyCursors) {
+            if (applyCursors && !headless) {
                 switch (GLFXStage.this.cursorType) {
                     case DEFAULT:
                         updateCursor(GLFXCursor.DEFAULT);
@@ -427,6 +556,9 @@ public class GLFXStage extends GLObject {
                     case WAIT:
                         updateCursor(GLFXCursor.WAIT);
                         break;
+                    case IMAGE:
+                        updateCursor(GLFXCursorCache.getImageCursor((ImageCursorFrame) cursorFrame));
+                        break;
                     default:
                         LOGGER.warn("Unknown cursor " + cursorFrame.getCursorType());
                         break;
@@ -526,6 +658,9 @@ public class GLFXStage extends GLObject {
     }
 
     private void setSceneImpl(final Scene scene) {
+        // the index listens to every node of the old scene
+        this.nodeIndex.clear();
+
         if ((this.stage != null) && (scene == null)) {
             this.stage.hide();
             this.stage = null;
@@ -550,6 +685,54 @@ public class GLFXStage extends GLObject {
         }
         return null;
     }
+
+    /**
+     * Sets the drag context shared by the group of stages that can drop onto
+     * each other. Stages use a default context shared by every stage until
+     * one is set. The context must not be changed while a drag is in
+     * progress.
+     *
+     * @param dragContext the drag context.
+     * @throws IllegalStateException if a drag is in progress.
+     * @since 26.10.18
+     */
+    public void setDragContext(final GLFXDragContext dragContext) {
+        Objects.requireNonNull(dragContext);
+
+        if (this.dragContext.isDragging()) {
+            throw new IllegalStateException("Cannot change the drag context while dragging!");
+        }
+
+        this.dragContext = dragContext;
+    }
+
+    /**
+     * Retrieves the drag context shared by the group of stages that can drop
+     * onto each other.
+     *
+     * @return the drag context.
+     * @since 26.10.18
+     */
+    public GLFXDragContext getDragContext() {
+        return this.dragContext;
+    }
+
+    /**
+     * Retrieves the image shown under the cursor while dragging. The image is
+     * shared by every stage that uses the same drag context; its draw task
+     * should be run once per frame after the stages are drawn.
+     *
+     * @return the drag image.
+     * @since 26.10.18
+     */
+    public GLFXDragImage getDragImage() {
+        return this.dragContext.getDragImage();
+    }
+
+    GLFXNodeIndex getNodeIndex() {
+        return this.nodeIndex;
+    }
+
     public Parent getRootNode(){
         if(getScene() != null){
             return getScene().getRoot();
@@ -613,13 +796,34 @@ public class GLFXStage extends GLObject {
      */
     public final void setParentWindowSize(final int newWidth, final int newHeight) {
         if (newWidth > 0 && newHeight > 0) {
-            this.windowWidth = newWidth;
-            this.windowHeight = newHeight;
+            if (this.windowWidth != newWidth || this.windowHeight != newHeight) {
+                this.windowWidth = newWidth;
+                this.windowHeight = newHeight;
+                this.projectionChanged = true;
+            }
         } else {
             LOGGER.debug("Parent window resize rejected; width or height is less than 1.");
         }
     }
 
+    private final List<GLFXInputRouter> routers = new CopyOnWriteArrayList<>();
+
+    void addRouter(final GLFXInputRouter router) {
+        this.routers.add(router);
+    }
+
+    void removeRouter(final GLFXInputRouter router) {
+        this.routers.remove(router);
+    }
+
+    int getParentWindowWidth() {
+        return this.windowWidth;
+    }
+
+    int getParentWindowHeight() {
+        return this.windowHeight;
+    }
+
     /**
      * Resizes the stage.
      *
@@ -633,6 +837,8 @@ public class GLFXStage extends GLObject {
         if (newWidth > 0 && newHeight > 0) {
             this.width = newWidth;
             this.height = newHeight;
+            this.updatePixelSize();
+            this.projectionChanged = true;
 
             if (this.emScene != null) {
                 this.emScene.setSize(width, height);
@@ -643,248 +849,1727 @@ public class GLFXStage extends GLObject {
             }
 
             this.needsRecreate = true;
+            // the routers' hit test grids hold the old size
+            this.routers.forEach(GLFXInputRouter::invalidate);
         } else {
             LOGGER.debug("Resize rejected; width or height is less than 1.");
         }
     }
 
-    public final void scroll(final double deltaX, final double deltaY) {
-        // TODO: this doesn't support horizontal scrolling!
-        // there must be a better way
-        GLFXStage.this.emScene.mouseEvent(
-                AbstractEvents.MOUSEEVENT_WHEEL, AbstractEvents.MOUSEEVENT_NONE_BUTTON,
-                leftButton, middleButton, rightButton,
-                mouseX, mouseY, mouseX, mouseY,
-                shift, ctrl, alt, meta, -(int) deltaY, false);
-    }
-
-    // netbeans thinks these are unused. They are definitely being used.
-    private volatile boolean needsRecreate = false;
-    private volatile boolean needsUpdate = false;
-
-    private void updateTexture() {
-        if (this.emScene != null) {
-            final int neededSize = this.width * this.height * Integer.BYTES;
-
-            if (neededSize > 0) {
-                if (this.tBuffer == null || neededSize > this.tBuffer.capacity()) {
-                    if(this.tBuffer != null) {
-                        MemoryUtil.memFree(this.tBuffer);
-                    }
-
-                    this.tBuffer = MemoryUtil.memAlloc(neededSize);
-                }
+    // the scroll distance JavaFX uses for one wheel notch
+    private static final double PIXELS_PER_NOTCH = 40.0;
+    private double scrollMultiplierX = 1.0;
+    private double scrollMultiplierY = 1.0;
 
-                this.tBuffer.clear();
-                this.emScene.getPixels(this.tBuffer.asIntBuffer(), this.width, this.height);
-                this.tBuffer.limit(neededSize);
-            } else {
-                LOGGER.trace("Request to read 0 bytes ignored.");
-            }
+    /**
+     * Sets the multipliers applied to scroll offsets before they are sent to
+     * the scene.
+     *
+     * @param multiplierX the horizontal scroll multiplier.
+     * @param multiplierY the vertical scroll multiplier.
+     * @throws IllegalArgumentException if either multiplier is not a positive
+     * number.
+     * @since 26.10.18
+     */
+    public void setScrollMultiplier(final double multiplierX, final double multiplierY) {
+        if (!(multiplierX > 0.0) || Double.isInfinite(multiplierX)) {
+            throw new IllegalArgumentException("Horizontal scroll multiplier [" + multiplierX + "] must be a positive number!");
+        } else if (!(multiplierY > 0.0) || Double.isInfinite(multiplierY)) {
+            throw new IllegalArgumentException("Vertical scroll multiplier [" + multiplierY + "] must be a positive number!");
         }
+
+        this.scrollMultiplierX = multiplierX;
+        this.scrollMultiplierY = multiplierY;
     }
 
     /**
-     * Draws the stage.
+     * Retrieves the horizontal scroll multiplier.
      *
-     * @since 15.09.21
+     * @return the horizontal scroll multiplier.
+     * @since 26.10.18
      */
-    public void draw() {
-        newDrawTask().glRun(this.getThread());
+    public double getScrollMultiplierX() {
+        return this.scrollMultiplierX;
     }
 
-    private void updateCursor(final GLFXCursor cursor) {
+    /**
+     * Retrieves the vertical scroll multiplier.
+     *
+     * @return the vertical scroll multiplier.
+     * @since 26.10.18
+     */
+    public double getScrollMultiplierY() {
+        return this.scrollMultiplierY;
+    }
 
-        if (this.window == null || this.window.get() == null) {
-            cursor.apply(GLWindow.listActiveWindows().get(0));
+    /**
+     * Scrolls the scene under the mouse. Offsets are in wheel notches, as
+     * reported by GLFW. Both axes are sent in a single scroll event with
+     * their exact offsets, so fractional scrolling from touchpads is not
+     * rounded. May be called from any thread; the event is dispatched on the
+     * JavaFX thread.
+     *
+     * @param deltaX the horizontal offset.
+     * @param deltaY the vertical offset.
+     * @since 15.09.21
+     */
+    public final void scroll(final double deltaX, final double deltaY) {
+        if (Toolkit.getToolkit().isFxUserThread()) {
+            this.dispatchScroll(deltaX, deltaY);
         } else {
-            cursor.apply(this.window.get());
+            Platform.runLater(() -> this.dispatchScroll(deltaX, deltaY));
         }
     }
 
-    public GLTexture getAndUpdateTexture(){
-        if (this.needsRecreate) {
-            if (this.width > 0 && this.height > 0) {
-                if (this.texture != null) {
-                    this.texture.delete();
-                }
-
-                this.texture = new GLTexture(this.getThread())
-                        .allocate(1, GLTextureInternalFormat.GL_RGBA8, this.width, this.height);
+    // the event is fired directly and the node index is read, so this must run on the JavaFX thread
+    private void dispatchScroll(final double deltaX, final double deltaY) {
+        final Scene scene = this.getScene();
 
-                this.needsRecreate = false;
-            } else {
-                LOGGER.debug("Ignored invalid request to resize texture to [width={}, height={}]", this.width, this.height);
-            }
+        if (this.emScene == null || scene == null || (deltaX == 0.0 && deltaY == 0.0)) {
+            return;
         }
 
-        if (this.needsUpdate) {
-            this.updateTexture();
-
-            this.texture
-                    .updateImage(0, 0, 0, this.width, this.height, GLTextureFormat.GL_BGRA, GLType.GL_UNSIGNED_BYTE, this.tBuffer)
-                    .setAttributes(new GLTextureParameters()
-                            .withFilter(GLTextureMinFilter.GL_LINEAR, GLTextureMagFilter.GL_LINEAR)
-                            .withWrap(GLTextureWrap.GL_CLAMP_TO_EDGE, GLTextureWrap.GL_CLAMP_TO_EDGE, GLTextureWrap.GL_CLAMP_TO_EDGE));
-            this.needsUpdate = false;
-        }
-        return this.texture;
+        final double pixelsX = deltaX * this.scrollMultiplierX * PIXELS_PER_NOTCH;
+        final double pixelsY = deltaY * this.scrollMultiplierY * PIXELS_PER_NOTCH;
+        // the embedded scene only accepts whole notches of vertical scrolling, so the event is delivered directly
+        final Node picked = this.nodeIndex.pick(scene.getRoot(), this.mouseX, this.mouseY);
+        final EventTarget target = picked != null ? picked : scene;
+
+        Event.fireEvent(target, new ScrollEvent(
+                ScrollEvent.SCROLL,
+                this.mouseX, this.mouseY, this.mouseAbsX, this.mouseAbsY,
+                this.shift, this.ctrl, this.alt, this.meta,
+                false, false,
+                pixelsX, pixelsY, pixelsX, pixelsY,
+                ScrollEvent.HorizontalTextScrollUnits.NONE, 0.0,
+                ScrollEvent.VerticalTextScrollUnits.NONE, 0.0,
+                0, new PickResult(target, this.mouseX, this.mouseY)));
     }
 
-    public GLTask newTextureBindTask(int loc){
-        final GLTask bindTask = GLTask.create(() -> {
-            getAndUpdateTexture();
+    // netbeans thinks these are unused. They are definitely being used.
+    private volatile boolean needsRecreate = false;
+    private volatile boolean needsUpdate = false;
 
-            this.texture.bind(loc);
-        });
+    private static final ExecutorService CAPTURE_WORKERS = Executors.newCachedThreadPool(task -> {
+        final Thread t = new Thread(task);
 
-        return bindTask;
-    }
+        t.setDaemon(true);
+        t.setName("GLFXStage - Capture Thread");
+        return t;
+    });
+
+    private volatile boolean asyncCapture = false;
+    private final GLFXTripleBuffer captureBuffer = new GLFXTripleBuffer();
+    private final AtomicBoolean captureRequested = new AtomicBoolean(false);
+    private final AtomicBoolean captureRunning = new AtomicBoolean(false);
 
     /**
-     * Creates a new GLTask that draws the stage.
+     * Enables or disables capturing off the OpenGL thread. When enabled, the
+     * JavaFX scene is read back on a worker thread whenever it repaints and
+     * the OpenGL thread only uploads the newest completed frame.
      *
-     * @return the GLTask.
-     * @since 15.09.21
+     * @param asyncCapture true to read back pixels on a worker thread.
+     * @since 26.10.18
      */
-    public GLTask newDrawTask() {
-        final int bindLoc = 0;
-        final GLTask bindTask = GLTask.create(() -> {
-            this.projection.set(GLMat4D.ortho(0, (double)windowWidth/width, (double)windowHeight/height, 0, -1, 1));
-
-            PROGRAM.get().setUniformMatrixF("vProj", this.projection);
-        });
-        final GLTask newTextureBindTask = newTextureBindTask(bindLoc);
+    public void setAsyncCapture(final boolean asyncCapture) {
+        this.asyncCapture = asyncCapture;
 
-        return GLTask.join(
-                PROGRAM.get().new UseTask(),
-                PROGRAM.get().new SetUniformITask("fxTexture", bindLoc),
-                bindTask,
-                newTextureBindTask,
-                vao.get().new DrawArraysTask(GLDrawMode.GL_TRIANGLE_STRIP, 0, 4));
+        if (asyncCapture) {
+            this.needsUpdate = true;
+            this.tryAsyncCapture();
+        }
     }
 
     /**
-     * A GLKeyListener that handles all key press and release events needed by
-     * the JavaFX objects.
+     * Checks if pixels are read back on a worker thread.
      *
-     * @since 15.09.21
+     * @return true if capturing happens off the OpenGL thread.
+     * @since 26.10.18
      */
-    public class KeyListener implements GLKeyListener {
-
-        @Override
-        public void keyActionPerformed(GLWindow glw, int key, int scanCode, GLKeyAction action, Set<GLKeyModifier> modifiers) {
-            Platform.runLater(() -> {
-                doKeyEvent(key, scanCode, action, modifiers);
-            });
-        }
+    public boolean isAsyncCapture() {
+        return this.asyncCapture;
     }
 
+    private volatile GLFXCapturePolicy capturePolicy = GLFXCapturePolicy.DEFAULT_POLICY;
+    private static final long DEFAULT_PULSE_TIMEOUT = 100L;
+    private volatile boolean headless = false;
+    private final Object pulseLock = new Object();
+    // guarded by pulseLock
+    private long repaintCount = 0L;
+    private ByteBuffer pulseBuffer;
+    private final List<GLFXFrameRecorder> frameRecorders = new CopyOnWriteArrayList<>();
+    private volatile boolean visible = true;
+    private volatile long lastCaptureTime = 0L;
+    // set once the pending update has been counted as skipped
+    private final AtomicBoolean skipRecorded = new AtomicBoolean(false);
+
     /**
-     * A GLKeyCharListener that handles all key type events needed by the JavaFX
-     * objects.
+     * Sets the policy that decides when the JavaFX scene may be captured.
      *
-     * @since 15.09.21
+     * @param capturePolicy the capture policy.
+     * @since 26.10.18
      */
-    public class KeyCharListener implements GLKeyCharListener {
-
-        @Override
-        public void charTypePerformed(GLWindow glw, char c) {
-            Platform.runLater(() -> {
-                doKeyCharEvent(c);
-            });
-        }
+    public void setCapturePolicy(final GLFXCapturePolicy capturePolicy) {
+        this.capturePolicy = Objects.requireNonNull(capturePolicy);
     }
 
-    private boolean leftButton = false;
-    private boolean rightButton = false;
-    private boolean middleButton = false;
-    private int mouseX = 0;
-    private int mouseY = 0;
-    private int mouseAbsX = 0;
-    private int mouseAbsY = 0;
-    private boolean shift = false;
-    private boolean alt = false;
-    private boolean ctrl = false;
-    private boolean meta = false;
-
     /**
-     * A GLMouseButtonListener that handles all mouse click events needed by the
-     * JavaFX objects.
+     * Retrieves the policy that decides when the JavaFX scene may be captured.
      *
-     * @since 15.09.21
+     * @return the capture policy.
+     * @since 26.10.18
      */
-    public class MouseButtonListener implements GLMouseButtonListener {
-
-        @Override
-        public void mouseButtonActionPerformed(GLWindow glw, int button, GLMouseButtonAction action, Set<GLKeyModifier> set) {
-            Platform.runLater(() -> {
-                doMouseButtonEvent(button, action, set);
-            });
-        }
+    public GLFXCapturePolicy getCapturePolicy() {
+        return this.capturePolicy;
     }
 
     /**
-     * A GLMousePositionListener that handles all mouse movement needed by the
-     * JavaFX objects.
+     * Marks the stage as visible or hidden. Hidden stages are not captured if
+     * the capture policy only allows captures while visible.
      *
-     * @since 15.09.21
+     * @param visible true if the stage is visible.
+     * @since 26.10.18
      */
-    public class MousePositionListener implements GLMousePositionListener {
+    public void setVisible(final boolean visible) {
+        this.visible = visible;
+    }
 
-        @Override
-        public void mousePositionActionPerformed(GLWindow glw, double x, double y) {
-            Platform.runLater(() -> {
-                doMousePositionEvent(x, y);
-            });
-        }
+    /**
+     * Checks if the stage is marked as visible.
+     *
+     * @return true if the stage is visible.
+     * @since 26.10.18
+     */
+    public boolean isVisible() {
+        return this.visible;
     }
 
-    public class MouseScrollListener implements GLMouseScrollListener {
+    private boolean isCaptureAllowed() {
+        final GLFXCapturePolicy policy = this.capturePolicy;
 
-        @Override
-        public void mouseScrollActionPerformed(GLWindow glw, double x, double y) {
-            Platform.runLater(() -> {
-                doMouseScrollEvent(x, y);
-            });
+        if (policy.onlyWhenVisible && !this.visible) {
+            return false;
+        } else if (policy.pauseWhenUnfocused && !this.focus) {
+            return false;
         }
+
+        final long interval = policy.getMinFrameInterval();
+
+        return interval == 0L || System.nanoTime() - this.lastCaptureTime >= interval;
     }
 
-    public class StageResizeListener implements GLFramebufferResizeListener {
+    private void tryAsyncCapture() {
+        if (this.isCaptureAllowed()) {
+            this.lastCaptureTime = System.nanoTime();
+            this.needsUpdate = false;
+            this.skipRecorded.set(false);
+            this.requestCapture();
+        } else {
+            // the pending update is retried by the OpenGL thread
+            this.recordSkip();
+        }
+    }
 
-        @Override
-        public void framebufferResizedActionPerformed(GLWindow glw, GLViewport view) {
-            Platform.runLater(() -> {
-                GLFXStage.this.setParentWindowSize(view.width, view.height);
-            });
+    private void recordSkip() {
+        // a postponed update is retried every frame but only counted once
+        if (this.skipRecorded.compareAndSet(false, true)) {
+            this.stats.recordSkip();
         }
     }
 
-    private Reference<GLWindow> window = null;
-    private final Set<Object> activeListeners = new HashSet<>();
+    private void requestCapture() {
+        this.captureRequested.set(true);
 
-    public void addEvents(GLWindow window) {
-        Objects.requireNonNull(window);
-        this.window = new WeakReference<>(window);
+        if (this.captureRunning.compareAndSet(false, true)) {
+            CAPTURE_WORKERS.execute(this::captureLoop);
+        }
+    }
 
-        final GLKeyCharListener kcListener = new KeyCharListener();
-        final GLKeyListener kListener = new KeyListener();
-        final GLMouseButtonListener mbListener = new MouseButtonListener();
-        final GLMousePositionListener mpListener = new MousePositionListener();
-        final GLMouseScrollListener msListener = new MouseScrollListener();
-        final GLFramebufferResizeListener fbListener = new StageResizeListener();
+    private void captureLoop() {
+        while (true) {
+            while (this.captureRequested.getAndSet(false)) {
+                this.captureFrame();
+            }
 
-        activeListeners.addAll(Arrays.asList(kcListener, kListener, mbListener, mpListener, msListener, fbListener));
+            this.captureRunning.set(false);
 
-        window.getKeyboard().addCharListener(kcListener);
-        window.getKeyboard().addKeyListener(kListener);
-        window.getMouse().addButtonListener(mbListener);
-        window.getMouse().addPositionListener(mpListener);
-        window.getMouse().addScrollListener(msListener);
-        window.addWindowResizeListener(fbListener);
+            // a request may have arrived after the last check but before the flag was cleared
+            if (!this.captureRequested.get() || !this.captureRunning.compareAndSet(false, true)) {
+                return;
+            }
+        }
     }
 
-    public void removeEvents(GLWindow window) {
+    private void captureFrame() {
+        synchronized (this.captureBuffer) {
+            final EmbeddedSceneInterface scene = this.emScene;
+            final int captureWidth = this.pixelWidth;
+            final int captureHeight = this.pixelHeight;
+
+            if (scene == null || !this.asyncCapture || captureWidth < 1 || captureHeight < 1) {
+                return;
+            }
+
+            final GLFXTripleBuffer.Frame frame = this.captureBuffer.getBackFrame();
+
+            frame.resize(captureWidth, captureHeight);
+
+            if (scene.getPixels(frame.ints, captureWidth, captureHeight)) {
+                this.captureBuffer.publish();
+                this.stats.recordCapture();
+            } else {
+                LOGGER.trace("Scene had no pixels to capture.");
+            }
+        }
+    }
+
+    /**
+     * Enables or disables headless mode. A headless stage is not coupled to
+     * any window: it does not accept window events, never changes a cursor
+     * and is captured by calling pulse instead of being drawn. JavaFX itself
+     * must be configured to run without a display, for example with the
+     * Monocle headless platform and software rendering.
+     *
+     * @param headless true to detach the stage from windows.
+     * @throws IllegalStateException if window events were added to the stage.
+     * @since 26.10.18
+     */
+    public void setHeadless(final boolean headless) {
+        if (headless && this.window != null) {
+            throw new IllegalStateException("Window events must be removed before the stage becomes headless!");
+        }
+
+        this.headless = headless;
+    }
+
+    /**
+     * Checks if the stage is headless.
+     *
+     * @return true if the stage is not coupled to any window.
+     * @since 26.10.18
+     */
+    public boolean isHeadless() {
+        return this.headless;
+    }
+
+    /**
+     * Runs a JavaFX pulse and captures the resulting frame. Waits at most
+     * 100 milliseconds for the scene to repaint.
+     *
+     * @return the captured frame.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     * @see #pulse(long, java.util.concurrent.TimeUnit)
+     * @since 26.10.18
+     */
+    public ByteBuffer pulse() throws InterruptedException {
+        return this.pulse(DEFAULT_PULSE_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs a JavaFX pulse and captures the resulting frame. All pending
+     * changes to the scene are rendered before the frame is captured. If the
+     * scene has nothing to repaint the previous contents are captured once the
+     * timeout elapses. The frame is {@link #getPixelWidth()} by
+     * {@link #getPixelHeight()} premultiplied BGRA pixels and stays valid
+     * until the next call to pulse. Must not be called on the JavaFX thread.
+     *
+     * @param timeout the longest time to wait for the scene to repaint.
+     * @param unit the unit of the timeout.
+     * @return the captured frame or null if the scene could not be captured.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     * @throws IllegalStateException if the stage is not headless or if called
+     * on the JavaFX thread.
+     * @since 26.10.18
+     */
+    public ByteBuffer pulse(final long timeout, final TimeUnit unit) throws InterruptedException {
+        if (!this.headless) {
+            throw new IllegalStateException("Only headless stages may be pulsed!");
+        } else if (Toolkit.getToolkit().isFxUserThread()) {
+            throw new IllegalStateException("Stages cannot be pulsed from the JavaFX thread!");
+        }
+
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        final long lastRepaint;
+
+        synchronized (this.pulseLock) {
+            lastRepaint = this.repaintCount;
+        }
+
+        final CountDownLatch pulsed = new CountDownLatch(1);
+        final TKPulseListener listener = pulsed::countDown;
+
+        Platform.runLater(() -> {
+            Toolkit.getToolkit().addPostSceneTkPulseListener(listener);
+            Toolkit.getToolkit().requestNextPulse();
+        });
+
+        // the lock must not be held here; repaint takes it on the JavaFX thread that runs the pulse
+        try {
+            pulsed.await(timeout, unit);
+        } finally {
+            Platform.runLater(() -> Toolkit.getToolkit().removePostSceneTkPulseListener(listener));
+        }
+
+        synchronized (this.pulseLock) {
+            // the scene renders after the pulse; repaint is called once the pixels are ready
+            long remaining = deadline - System.nanoTime();
+
+            while (this.repaintCount == lastRepaint && remaining > 0L) {
+                TimeUnit.NANOSECONDS.timedWait(this.pulseLock, remaining);
+                remaining = deadline - System.nanoTime();
+            }
+
+            return this.capturePulse();
+        }
+    }
+
+    /**
+     * Runs a JavaFX pulse and draws the resulting frame into an
+     * IndirectSurface. The surface is treated as the parent window of the
+     * stage. Must be called on the OpenGL thread used by the surface.
+     *
+     * @param surface the surface to draw to.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     * @throws IllegalStateException if the stage is not headless.
+     * @see #pulse(long, java.util.concurrent.TimeUnit)
+     * @since 26.10.18
+     */
+    public void pulse(final IndirectSurface surface) throws InterruptedException {
+        this.pulse();
+        this.setParentWindowSize(surface.width, surface.height);
+        surface.render(this.drawTask.get());
+    }
+
+    private ByteBuffer capturePulse() {
+        final EmbeddedSceneInterface scene = this.emScene;
+        final int captureWidth = this.pixelWidth;
+        final int captureHeight = this.pixelHeight;
+        final int neededSize = captureWidth * captureHeight * Integer.BYTES;
+
+        if (scene == null || neededSize <= 0) {
+            return null;
+        }
+
+        if (this.pulseBuffer == null || this.pulseBuffer.capacity() < neededSize) {
+            if (this.pulseBuffer != null) {
+                MemoryUtil.memFree(this.pulseBuffer);
+            }
+
+            this.pulseBuffer = MemoryUtil.memAlloc(neededSize);
+        }
+
+        this.pulseBuffer.clear().limit(neededSize);
+
+        if (!scene.getPixels(this.pulseBuffer.asIntBuffer(), captureWidth, captureHeight)) {
+            LOGGER.trace("Scene had no pixels to capture.");
+            return null;
+        }
+
+        this.stats.recordCapture();
+        this.recordFrame(this.pulseBuffer, captureWidth, captureHeight);
+        return this.pulseBuffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Adds a recorder that receives every frame captured by the stage.
+     * Frames uploaded with GLFXUploadMode.ZERO_COPY are read back into client
+     * memory while a recorder is attached.
+     *
+     * @param recorder the recorder.
+     * @since 26.10.18
+     */
+    public void addFrameRecorder(final GLFXFrameRecorder recorder) {
+        this.frameRecorders.add(Objects.requireNonNull(recorder));
+    }
+
+    /**
+     * Removes a recorder. The recorder is not closed.
+     *
+     * @param recorder the recorder.
+     * @since 26.10.18
+     */
+    public void removeFrameRecorder(final GLFXFrameRecorder recorder) {
+        this.frameRecorders.remove(recorder);
+    }
+
+    private void recordFrame(final ByteBuffer frame, final int frameWidth, final int frameHeight) {
+        if (this.frameRecorders.isEmpty()) {
+            // iterating allocates
+            return;
+        }
+
+        for (GLFXFrameRecorder recorder : this.frameRecorders) {
+            recorder.offer(frame, frameWidth, frameHeight);
+        }
+    }
+
+    private boolean updateTexture() {
+        if (this.emScene != null) {
+            final int neededSize = this.pixelWidth * this.pixelHeight * Integer.BYTES;
+
+            if (neededSize > 0) {
+                if (this.tBuffer == null || neededSize > this.tBuffer.capacity()) {
+                    if(this.tBuffer != null) {
+                        MemoryUtil.memFree(this.tBuffer);
+                    }
+
+                    this.tBuffer = MemoryUtil.memAlloc(neededSize);
+                    this.tPixels = this.tBuffer.asIntBuffer();
+                }
+
+                this.tBuffer.clear();
+                this.tPixels.clear();
+
+                if (!this.emScene.getPixels(this.tPixels, this.pixelWidth, this.pixelHeight)) {
+                    LOGGER.trace("Scene did not provide a frame; keeping the previous one.");
+                    return false;
+                }
+
+                this.tBuffer.limit(neededSize);
+                return true;
+            } else {
+                LOGGER.trace("Request to read 0 bytes ignored.");
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Retrieves the vertex array holding the stage's quad. The quad spans
+     * [0, 1] in both directions and its texture coordinates cover the stage's
+     * part of the texture.
+     *
+     * @return the vertex array.
+     */
+    GLVertexArray getVertexArray() {
+        return this.vao.get();
+    }
+
+    /**
+     * Draws the stage.
+     *
+     * @since 15.09.21
+     */
+    public void draw() {
+        this.drawTask.get().glRun(this.getThread());
+    }
+
+    /**
+     * Destroys the GLFW cursors created for JavaFX image cursors. Up to 32
+     * image cursors are kept between uses; this should be called before
+     * GLFW is terminated. Cursors are created again the next time they are
+     * shown.
+     *
+     * @since 26.10.18
+     */
+    public static void disposeImageCursors() {
+        GLFXCursorCache.dispose();
+    }
+
+    private void updateCursor(final GLFXCursor cursor) {
+        this.updateCursor(cursor.getHandle());
+    }
+
+    private void updateCursor(final long handle) {
+        if (handle == 0L) {
+            return;
+        }
+
+        final Reference<GLWindow> routedWindow = this.cursorWindow;
+
+        // redundant cursors are filtered per window by the cache
+        if (this.window != null && this.window.get() != null) {
+            GLFXCursorCache.apply(this.window.get(), handle);
+        } else if (routedWindow != null && routedWindow.get() != null) {
+            GLFXCursorCache.apply(routedWindow.get(), handle);
+        } else {
+            GLFXCursorCache.apply(GLWindow.listActiveWindows().get(0), handle);
+        }
+    }
+
+    /**
+     * Sets the window cursor changes are applied to when the stage receives
+     * its input through a GLFXInputRouter. Called when the mouse enters the
+     * stage in that window.
+     *
+     * @param window the window the mouse is in.
+     */
+    void setCursorWindow(final GLWindow window) {
+        this.cursorWindow = new WeakReference<>(window);
+    }
+
+    /**
+     * Sets the position of the stage in the window its mouse positions are
+     * relative to. Only used to place the drag image.
+     *
+     * @param x the x-offset of the stage.
+     * @param y the y-offset of the stage.
+     */
+    void setWindowOffset(final double x, final double y) {
+        this.windowOffsetX = x;
+        this.windowOffsetY = y;
+    }
+
+    /**
+     * Queues an input event for the JavaFX thread. Must be called on the
+     * thread that delivers window events.
+     *
+     * @param type the event type.
+     * @param code the key, character or mouse button.
+     * @param scanCode the key scan code.
+     * @param action the ordinal of the key or mouse button action.
+     * @param mods the GLFW modifier bitmask.
+     * @param x the mouse x-position relative to the stage or the horizontal
+     * scroll.
+     * @param y the mouse y-position relative to the stage or the vertical
+     * scroll.
+     */
+    void offerInput(
+            final int type, final int code, final int scanCode, final int action, final int mods,
+            final double x, final double y) {
+
+        this.inputQueue.offer(type, code, scanCode, action, mods, x, y);
+    }
+
+    /**
+     * Enables or disables dirty region tracking. When enabled, each captured
+     * frame is compared against the previous frame and only the changed
+     * rectangles are uploaded to the texture. Tracking keeps a copy of the
+     * previous frame and costs a full-frame comparison per capture, so it only
+     * pays off for stages that change a small part of the frame at a time. It
+     * is disabled by default.
+     *
+     * @param dirtyRegionTracking true to upload only the changed regions.
+     * @since 26.10.18
+     */
+    public void setDirtyRegionTracking(final boolean dirtyRegionTracking) {
+        this.dirtyRegionTracking = dirtyRegionTracking;
+        this.dirtyRegions.invalidate();
+    }
+
+    /**
+     * Checks if dirty region tracking is enabled.
+     *
+     * @return true if only changed regions are uploaded.
+     * @since 26.10.18
+     */
+    public boolean isDirtyRegionTracking() {
+        return this.dirtyRegionTracking;
+    }
+
+    /**
+     * Sets how captured frames are uploaded to the texture.
+     *
+     * @param uploadMode the upload mode.
+     * @since 26.10.18
+     */
+    public void setUploadMode(final GLFXUploadMode uploadMode) {
+        this.uploadMode = Objects.requireNonNull(uploadMode);
+    }
+
+    /**
+     * Retrieves how captured frames are uploaded to the texture.
+     *
+     * @return the upload mode.
+     * @since 26.10.18
+     */
+    public GLFXUploadMode getUploadMode() {
+        return this.uploadMode;
+    }
+
+    /**
+     * Enables or disables hit testing. When enabled, a mask of the opaque
+     * pixels is kept up to date from the changed regions of each frame, and
+     * hitTest reports whether a position is covered by content. Stages with
+     * hit testing enabled let input through their transparent pixels when
+     * routed by a GLFXInputRouter. Hit testing disables ZERO_COPY uploads
+     * since the mask is read from the frame in client memory.
+     *
+     * @param hitTesting true to track opaque pixels.
+     * @since 26.10.18
+     */
+    public void setHitTesting(final boolean hitTesting) {
+        if (this.hitTesting == hitTesting) {
+            return;
+        }
+
+        this.hitTesting = hitTesting;
+        this.hitMask.invalidate();
+
+        if (hitTesting) {
+            // the mask needs one full frame to start from
+            this.invalidateUpload();
+        }
+    }
+
+    /**
+     * Checks if hit testing is enabled.
+     *
+     * @return true if opaque pixels are tracked.
+     * @since 26.10.18
+     */
+    public boolean isHitTesting() {
+        return this.hitTesting;
+    }
+
+    /**
+     * Sets the alpha a pixel must exceed to consume input. Defaults to 0, so
+     * any visible pixel consumes input.
+     *
+     * @param alphaThreshold the alpha threshold in [0, 255].
+     * @since 26.10.18
+     */
+    public void setHitTestAlphaThreshold(final int alphaThreshold) {
+        this.hitMask.setAlphaThreshold(alphaThreshold);
+
+        if (this.hitTesting) {
+            this.hitMask.invalidate();
+            this.invalidateUpload();
+        }
+    }
+
+    /**
+     * Tests if the stage wants the input at a position. This only reads the
+     * mask built from the last captured frame and may be called from any
+     * thread. Positions are always consumed if hit testing is disabled or no
+     * frame has been captured yet.
+     *
+     * @param x the x-position relative to the stage.
+     * @param y the y-position relative to the stage.
+     * @return CONSUME if the stage has content at the position, otherwise
+     * PASS_THROUGH.
+     * @since 26.10.18
+     */
+    public GLFXHitResult hitTest(final double x, final double y) {
+        if (!this.hitTesting) {
+            return GLFXHitResult.CONSUME;
+        }
+
+        // the mask is in frame pixels; scale from stage coordinates
+        final float scale = this.scaleFactor;
+        final int px = (int) Math.floor(x * scale);
+        final int py = (int) Math.floor(y * scale);
+
+        return this.hitMask.isOpaque(px, py) ? GLFXHitResult.CONSUME : GLFXHitResult.PASS_THROUGH;
+    }
+
+    /**
+     * Retrieves the counters for the work done by this stage.
+     *
+     * @return the stage statistics.
+     * @since 26.10.18
+     */
+    public GLFXStageStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Sets the scale the scene is rendered at. The stage keeps its size and
+     * its mouse coordinates, but the scene is captured at the stage size
+     * multiplied by the render scale. Use the display's pixel scale to render
+     * sharply on hi-DPI displays or a scale below 1.0 to trade detail for
+     * upload bandwidth.
+     *
+     * @param renderScale the render scale.
+     * @throws IllegalArgumentException if the render scale is not greater
+     * than 0.
+     * @since 26.10.18
+     */
+    public void setRenderScale(final float renderScale) {
+        if (!(renderScale > 0f) || Float.isInfinite(renderScale)) {
+            throw new IllegalArgumentException("Render scale [" + renderScale + "] must be greater than 0!");
+        } else if (this.scaleFactor == renderScale) {
+            return;
+        }
+
+        this.scaleFactor = renderScale;
+        this.updatePixelSize();
+
+        if (this.emScene != null) {
+            this.emScene.setPixelScaleFactor(renderScale);
+        }
+
+        this.needsRecreate = true;
+        this.needsUpdate = true;
+    }
+
+    /**
+     * Retrieves the scale the scene is rendered at.
+     *
+     * @return the render scale.
+     * @since 26.10.18
+     */
+    public float getRenderScale() {
+        return this.scaleFactor;
+    }
+
+    private void updatePixelSize() {
+        this.pixelWidth = Math.max(1, Math.round(this.width * this.scaleFactor));
+        this.pixelHeight = Math.max(1, Math.round(this.height * this.scaleFactor));
+    }
+
+    /**
+     * Retrieves the width of the captured frame; the width multiplied by the
+     * render scale.
+     *
+     * @return the width in pixels.
+     * @since 26.10.18
+     */
+    public int getPixelWidth() {
+        return this.pixelWidth;
+    }
+
+    /**
+     * Retrieves the height of the captured frame; the height multiplied by
+     * the render scale.
+     *
+     * @return the height in pixels.
+     * @since 26.10.18
+     */
+    public int getPixelHeight() {
+        return this.pixelHeight;
+    }
+
+    // texture sizes are rounded up to a multiple of this when headroom is enabled
+    private static final int TEXTURE_SIZE_BUCKET = 256;
+
+    /**
+     * Enables or disables texture headroom. When enabled, the texture is
+     * allocated larger than the stage and is reused across resizes until the
+     * stage outgrows it or shrinks to a third of it. The stage only
+     * occupies the top-left corner of the texture; users of
+     * getAndUpdateTexture must scale their texture coordinates by getMaxU and
+     * getMaxV. Headroom is not used while the stage is mipmapped, since the
+     * mipmaps would average the unused area into the stage's edges.
+     *
+     * @param textureHeadroom true to allocate the texture with headroom.
+     * @since 26.10.18
+     */
+    public void setTextureHeadroom(final boolean textureHeadroom) {
+        this.textureHeadroom = textureHeadroom;
+    }
+
+    /**
+     * Checks if the texture is allocated with headroom.
+     *
+     * @return true if texture headroom is enabled.
+     * @since 26.10.18
+     */
+    public boolean isTextureHeadroom() {
+        return this.textureHeadroom;
+    }
+
+    /**
+     * Sets how the stage is blended over the framebuffer when drawn with its
+     * draw task.
+     *
+     * @param blendMode the blend mode.
+     * @since 26.10.18
+     */
+    public void setBlendMode(final GLFXBlendMode blendMode) {
+        this.blendMode = Objects.requireNonNull(blendMode);
+    }
+
+    /**
+     * Retrieves how the stage is blended over the framebuffer.
+     *
+     * @return the blend mode.
+     * @since 26.10.18
+     */
+    public GLFXBlendMode getBlendMode() {
+        return this.blendMode;
+    }
+
+    /**
+     * Sets the filter used when the stage is drawn with its draw task.
+     *
+     * @param sampling the filter.
+     * @since 26.10.18
+     */
+    public void setSampling(final GLFXSampling sampling) {
+        this.sampling = Objects.requireNonNull(sampling);
+    }
+
+    /**
+     * Retrieves the filter used when the stage is drawn.
+     *
+     * @return the filter.
+     * @since 26.10.18
+     */
+    public GLFXSampling getSampling() {
+        return this.sampling;
+    }
+
+    /**
+     * Stores the texture as GL_SRGB8_ALPHA8 instead of GL_RGBA8. JavaFX
+     * renders in sRGB; with sRGB storage the texture is filtered and blended
+     * in linear space when drawn to an sRGB framebuffer. The texture is
+     * recreated on the next update.
+     *
+     * @param srgbStorage true to store the texture as sRGB.
+     * @since 26.10.18
+     */
+    public void setSRGBStorage(final boolean srgbStorage) {
+        if (this.srgbStorage != srgbStorage) {
+            this.srgbStorage = srgbStorage;
+            this.needsRecreate = true;
+            this.needsUpdate = true;
+        }
+    }
+
+    /**
+     * Checks if the texture is stored as sRGB.
+     *
+     * @return true if sRGB storage is enabled.
+     * @since 26.10.18
+     */
+    public boolean isSRGBStorage() {
+        return this.srgbStorage;
+    }
+
+    /**
+     * Enables or disables mipmaps. A mipmapped texture stays stable when the
+     * stage is drawn small or at an oblique angle, for example on a quad in
+     * a 3D scene. The mipmaps are regenerated after the texture changes, at
+     * most once per mipmap interval. The texture is recreated on the next
+     * update. A mipmapped texture is always allocated without headroom.
+     *
+     * @param mipmapped true to allocate the texture with a full mip chain.
+     * @since 26.10.18
+     */
+    public void setMipmapped(final boolean mipmapped) {
+        if (this.mipmapped != mipmapped) {
+            this.mipmapped = mipmapped;
+            this.needsRecreate = true;
+            this.needsUpdate = true;
+        }
+    }
+
+    /**
+     * Checks if the texture is allocated with mipmaps.
+     *
+     * @return true if mipmaps are enabled.
+     * @since 26.10.18
+     */
+    public boolean isMipmapped() {
+        return this.mipmapped;
+    }
+
+    /**
+     * Sets the shortest time between two regenerations of the mipmaps. Until
+     * the interval has elapsed, changes only appear in the full-size level.
+     *
+     * @param interval the minimum interval.
+     * @param unit the unit of the interval.
+     * @since 26.10.18
+     */
+    public void setMipmapInterval(final long interval, final TimeUnit unit) {
+        if (interval < 0L) {
+            throw new IllegalArgumentException("Mipmap interval [" + interval + "] must not be negative!");
+        }
+
+        this.mipmapInterval = unit.toNanos(interval);
+    }
+
+    /**
+     * Sets the anisotropic filtering level used by mipmapped textures. The
+     * level is clamped to the maximum supported by the context; contexts
+     * without anisotropic filtering ignore it. The texture is recreated on
+     * the next update.
+     *
+     * @param anisotropy the anisotropic filtering level; 1.0 disables it.
+     * @since 26.10.18
+     */
+    public void setAnisotropy(final float anisotropy) {
+        if (!(anisotropy >= 1f)) {
+            throw new IllegalArgumentException("Anisotropy [" + anisotropy + "] must be at least 1.0!");
+        }
+
+        if (this.anisotropy != anisotropy) {
+            this.anisotropy = anisotropy;
+
+            if (this.mipmapped) {
+                this.needsRecreate = true;
+                this.needsUpdate = true;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the requested anisotropic filtering level.
+     *
+     * @return the anisotropic filtering level.
+     * @since 26.10.18
+     */
+    public float getAnisotropy() {
+        return this.anisotropy;
+    }
+
+    /**
+     * Sets how long the stage must stay unchanged before its texture is
+     * compressed. Once the given number of consecutive texture updates upload
+     * nothing, the last frame is encoded as DXT1 (opaque frames) or DXT5 on a
+     * worker thread and replaces the texture, using 8 or 4 times less video
+     * memory. The texture returns to uncompressed storage on the next change.
+     * Compression requires dirty region tracking and S3TC support, and is
+     * skipped for mipmapped and sRGB textures.
+     *
+     * @param threshold the number of unchanged updates before compressing; 0
+     * disables compression.
+     * @since 26.10.18
+     */
+    public void setIdleCompressionThreshold(final int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Idle compression threshold [" + threshold + "] must not be negative!");
+        }
+
+        this.idleCompressionThreshold = threshold;
+
+        if (threshold == 0 && this.compressed) {
+            // the next upload restores the uncompressed texture
+            this.invalidateUpload();
+        }
+    }
+
+    /**
+     * Retrieves the number of unchanged updates before the texture is
+     * compressed.
+     *
+     * @return the idle compression threshold; 0 if compression is disabled.
+     * @since 26.10.18
+     */
+    public int getIdleCompressionThreshold() {
+        return this.idleCompressionThreshold;
+    }
+
+    /**
+     * Checks if the texture currently holds a block-compressed copy of an idle
+     * frame.
+     *
+     * @return true if the texture is compressed.
+     * @since 26.10.18
+     */
+    public boolean isTextureCompressed() {
+        return this.compressed;
+    }
+
+    /**
+     * Retrieves the horizontal texture coordinate of the right edge of the
+     * stage. This is 1.0 unless texture headroom is in use.
+     *
+     * @return the maximum u texture coordinate.
+     * @since 26.10.18
+     */
+    public float getMaxU() {
+        return this.maxU;
+    }
+
+    /**
+     * Retrieves the vertical texture coordinate of the bottom edge of the
+     * stage. This is 1.0 unless texture headroom is in use.
+     *
+     * @return the maximum v texture coordinate.
+     * @since 26.10.18
+     */
+    public float getMaxV() {
+        return this.maxV;
+    }
+
+    private static int bucketSize(final int size) {
+        return ((size + TEXTURE_SIZE_BUCKET - 1) / TEXTURE_SIZE_BUCKET) * TEXTURE_SIZE_BUCKET;
+    }
+
+    // the mipmaps of a texture with headroom would average the unused area into the stage's edges
+    private boolean hasHeadroom() {
+        return this.textureHeadroom && !this.mipmapped;
+    }
+
+    private boolean isTextureReusable() {
+        if (this.texture == null || !this.hasHeadroom()) {
+            return false;
+        } else if (this.pixelWidth > this.textureWidth || this.pixelHeight > this.textureHeight) {
+            return false;
+        } else {
+            // release the memory once the stage shrinks well below the texture
+            return !isWasteful(this.pixelWidth, this.textureWidth) && !isWasteful(this.pixelHeight, this.textureHeight);
+        }
+    }
+
+    private static boolean isWasteful(final int size, final int textureSize) {
+        return bucketSize(size) < textureSize && size * 3 <= textureSize;
+    }
+
+    private void updateTextureCoordinates() {
+        final float newMaxU = (float) this.pixelWidth / this.textureWidth;
+        final float newMaxV = (float) this.pixelHeight / this.textureHeight;
+
+        if (newMaxU != this.maxU || newMaxV != this.maxV) {
+            this.maxU = newMaxU;
+            this.maxV = newMaxV;
+
+            this.vUVs.ifInitialized(texCoord -> texCoord.upload(GLTools.wrapFloat(
+                    0f, 0f,
+                    0f, this.maxV,
+                    this.maxU, 0f,
+                    this.maxU, this.maxV)));
+        }
+    }
+
+    public GLTexture getAndUpdateTexture(){
+        if (this.needsRecreate) {
+            if (this.pixelWidth > 0 && this.pixelHeight > 0) {
+                final GLTextureInternalFormat format = this.srgbStorage
+                        ? GLTextureInternalFormat.GL_SRGB8_ALPHA8
+                        : GLTextureInternalFormat.GL_RGBA8;
+
+                if (format == this.textureFormat && this.mipmapped == (this.textureLevels > 1) && this.isTextureReusable()) {
+                    LOGGER.trace("Reusing [{}, {}] texture for [{}, {}] stage.", this.textureWidth, this.textureHeight, this.pixelWidth, this.pixelHeight);
+                    // the filtering may have changed since the texture was allocated
+                    this.texture.setAttributes(this.getTextureParameters());
+                } else {
+                    if (this.texture != null) {
+                        this.texture.delete();
+                    }
+
+                    this.textureWidth = this.hasHeadroom() ? bucketSize(this.pixelWidth) : this.pixelWidth;
+                    this.textureHeight = this.hasHeadroom() ? bucketSize(this.pixelHeight) : this.pixelHeight;
+                    this.textureFormat = format;
+                    this.textureLevels = this.mipmapped ? mipLevels(this.textureWidth, this.textureHeight) : 1;
+                    this.compressed = false;
+                    this.texture = new GLTexture(this.getThread())
+                            .allocate(this.textureLevels, format, this.textureWidth, this.textureHeight)
+                            .setAttributes(this.getTextureParameters());
+                }
+
+                this.updateTextureCoordinates();
+
+                // the visible part of the texture is stale; everything must be uploaded
+                this.dirtyRegions.invalidate();
+                this.uploadGeneration++;
+                this.needsRecreate = false;
+            } else {
+                LOGGER.debug("Ignored invalid request to resize texture to [width={}, height={}]", this.pixelWidth, this.pixelHeight);
+            }
+        }
+
+        final boolean uploaded = this.captureAndUpload(this.texture, 0, 0);
+
+        if (this.textureLevels > 1) {
+            this.updateMipmaps(uploaded);
+        }
+
+        this.updateCompression(uploaded);
+
+        return this.texture;
+    }
+
+    private GLTextureParameters getTextureParameters() {
+        final boolean mipmaps = this.textureLevels > 1;
+        final float anisotropicLevel = mipmaps ? Math.min(this.anisotropy, MAX_ANISOTROPY.get()) : 1f;
+
+        // only rebuilt when the filtering changes
+        if (this.textureParameters == null
+                || this.textureParametersMipmapped != mipmaps
+                || this.textureParametersAnisotropy != anisotropicLevel) {
+
+            final GLTextureParameters params = new GLTextureParameters()
+                    .withWrap(GLTextureWrap.GL_CLAMP_TO_EDGE, GLTextureWrap.GL_CLAMP_TO_EDGE, GLTextureWrap.GL_CLAMP_TO_EDGE);
+
+            this.textureParameters = mipmaps
+                    ? params
+                            .withFilter(GLTextureMinFilter.GL_LINEAR_MIPMAP_LINEAR, GLTextureMagFilter.GL_LINEAR)
+                            .withAnisotropicLevel(anisotropicLevel)
+                    : params.withFilter(GLTextureMinFilter.GL_LINEAR, GLTextureMagFilter.GL_LINEAR);
+            this.textureParametersMipmapped = mipmaps;
+            this.textureParametersAnisotropy = anisotropicLevel;
+        }
+
+        return this.textureParameters;
+    }
+
+    private static int mipLevels(final int width, final int height) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+    }
+
+    private void updateMipmaps(final boolean uploaded) {
+        this.mipmapsStale |= uploaded;
+
+        if (!this.mipmapsStale) {
+            return;
+        }
+
+        // the whole chain is rebuilt, so frequent small updates are batched
+        final long now = System.nanoTime();
+
+        if (now - this.lastMipmapTime >= this.mipmapInterval) {
+            this.texture.generateMipmap();
+            this.lastMipmapTime = now;
+            this.mipmapsStale = false;
+        }
+    }
+
+    private static final class CompressedFrame {
+
+        final ByteBuffer blocks;
+        final boolean alpha;
+        final int width;
+        final int height;
+        final long generation;
+
+        CompressedFrame(final ByteBuffer blocks, final boolean alpha, final int width, final int height, final long generation) {
+            this.blocks = blocks;
+            this.alpha = alpha;
+            this.width = width;
+            this.height = height;
+            this.generation = generation;
+        }
+    }
+
+    private void updateCompression(final boolean uploaded) {
+        if (uploaded) {
+            this.uploadGeneration++;
+            this.stableUpdates = 0;
+        }
+
+        final CompressedFrame encoded = this.encodedFrame.getAndSet(null);
+
+        if (encoded != null) {
+            try {
+                // the frame is dropped if the stage changed or was resized while it was encoded
+                if (!this.compressed
+                        && encoded.generation == this.uploadGeneration
+                        && encoded.width == this.textureWidth
+                        && encoded.height == this.textureHeight) {
+
+                    this.swapToCompressed(encoded);
+                }
+            } finally {
+                MemoryUtil.memFree(encoded.blocks);
+            }
+        }
+
+        final int threshold = this.idleCompressionThreshold;
+
+        if (uploaded || threshold == 0 || this.compressed || this.compressing) {
+            return;
+        } else if (this.stableUpdates < threshold) {
+            this.stableUpdates++;
+        }
+
+        if (this.stableUpdates >= threshold && this.isCompressible()) {
+            this.startCompression();
+        }
+    }
+
+    private boolean isCompressible() {
+        if (!this.dirtyRegionTracking
+                || this.textureLevels > 1
+                || this.textureFormat != GLTextureInternalFormat.GL_RGBA8
+                || this.texture == null
+                || this.dirtyRegions.getPreviousFrame() == null
+                || this.dirtyRegions.getWidth() != this.pixelWidth
+                || this.dirtyRegions.getHeight() != this.pixelHeight) {
+
+            return false;
+        } else if (this.compressionUnsupported) {
+            return false;
+        } else if (!S3TC_SUPPORTED.get()) {
+            LOGGER.warn("S3TC textures are not supported by the current context; idle stages will not be compressed.");
+            this.compressionUnsupported = true;
+            return false;
+        } else {
+            return true;
+        }
+    }
+
+    private void startCompression() {
+        // the tracker keeps the last uploaded frame; copy it since the next upload overwrites it
+        final int frameWidth = this.dirtyRegions.getWidth();
+        final int frameHeight = this.dirtyRegions.getHeight();
+        final ByteBuffer frame = MemoryUtil.memAlloc(frameWidth * frameHeight * Integer.BYTES);
+
+        GLFXDirtyRegionTracker.copyRegion(this.dirtyRegions.getPreviousFrame(), frameWidth, 0, 0, frameWidth, frameHeight, frame, 0);
+
+        final int width = this.textureWidth;
+        final int height = this.textureHeight;
+        final long generation = this.uploadGeneration;
+
+        this.compressing = true;
+
+        CAPTURE_WORKERS.execute(() -> {
+            try {
+                final boolean alpha = !GLFXTextureCompressor.isOpaque(frame, frameWidth, frameHeight);
+                final ByteBuffer blocks = GLFXTextureCompressor.compress(frame, frameWidth, frameHeight, width, height, alpha);
+                final CompressedFrame old = this.encodedFrame.getAndSet(new CompressedFrame(blocks, alpha, width, height, generation));
+
+                if (old != null) {
+                    MemoryUtil.memFree(old.blocks);
+                }
+            } catch (RuntimeException ex) {
+                LOGGER.error("Unable to compress idle frame!", ex);
+            } finally {
+                MemoryUtil.memFree(frame);
+                this.compressing = false;
+            }
+        });
+    }
+
+    private void swapToCompressed(final CompressedFrame encoded) {
+        final int format = encoded.alpha
+                ? EXTTextureCompressionS3TC.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT
+                : EXTTextureCompressionS3TC.GL_COMPRESSED_RGB_S3TC_DXT1_EXT;
+        final GLTexture compressedTexture = new GLTexture(this.getThread())
+                .allocate(1, encoded.alpha
+                        ? GLTextureInternalFormat.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT
+                        : GLTextureInternalFormat.GL_COMPRESSED_RGB_S3TC_DXT1_EXT,
+                        encoded.width, encoded.height)
+                .setAttributes(this.getTextureParameters());
+
+        // compressed blocks cannot go through the regular image update
+        compressedTexture.bind(0);
+
+        switch (GLWindow.CLIENT_API) {
+            case OPENGLES:
+                GLES20.glCompressedTexSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, 0, encoded.width, encoded.height, format, encoded.blocks);
+                break;
+            default:
+                GL13.glCompressedTexSubImage2D(GL11.GL_TEXTURE_2D, 0, 0, 0, encoded.width, encoded.height, format, encoded.blocks);
+                break;
+        }
+
+        LOGGER.debug("Compressed idle [{}, {}] texture to [{}] bytes.", encoded.width, encoded.height, encoded.blocks.remaining());
+
+        this.texture.delete();
+        this.texture = compressedTexture;
+        this.compressed = true;
+    }
+
+    /**
+     * Replaces the compressed texture with an uncompressed one. The new
+     * texture is empty, so the next upload sends the entire frame.
+     *
+     * @return the uncompressed texture.
+     */
+    private GLTexture decompressTexture() {
+        this.texture.delete();
+        this.texture = new GLTexture(this.getThread())
+                .allocate(this.textureLevels, this.textureFormat, this.textureWidth, this.textureHeight)
+                .setAttributes(this.getTextureParameters());
+        this.compressed = false;
+        this.dirtyRegions.invalidate();
+
+        LOGGER.debug("Restored uncompressed [{}, {}] texture.", this.textureWidth, this.textureHeight);
+        return this.texture;
+    }
+
+    /**
+     * Forces the next upload to send the entire frame. Used when the
+     * destination of the uploads changes.
+     */
+    void invalidateUpload() {
+        this.dirtyRegions.invalidate();
+        this.needsUpdate = true;
+    }
+
+    /**
+     * Captures the scene if a capture is pending and uploads the changed
+     * pixels to the destination texture. Must be called on the OpenGL thread.
+     *
+     * @param dst the texture to upload to.
+     * @param dstX the x-offset of the stage within the texture.
+     * @param dstY the y-offset of the stage within the texture.
+     * @return true if any pixels of the texture were changed.
+     */
+    boolean captureAndUpload(final GLTexture dst, final int dstX, final int dstY) {
+        if (this.asyncCapture) {
+            if (this.needsUpdate) {
+                this.tryAsyncCapture();
+            }
+
+            final GLFXTripleBuffer.Frame frame = this.captureBuffer.acquire();
+
+            // frames captured before a resize are dropped; the resize triggers a new capture
+            return frame != null && frame.width == this.pixelWidth && frame.height == this.pixelHeight
+                    && this.uploadFrame(dst, dstX, dstY, frame.pixels, frame.width, frame.height);
+        } else if (this.needsUpdate) {
+            if (this.isCaptureAllowed()) {
+                // clear the flag first so a repaint during the capture is not lost
+                this.lastCaptureTime = System.nanoTime();
+                this.needsUpdate = false;
+                this.skipRecorded.set(false);
+
+                final boolean toStageTexture = dst == this.texture;
+
+                // only frames the scene provided are counted, as on the asynchronous path
+                if (this.captureZeroCopy(dst, dstX, dstY)) {
+                    this.stats.recordCapture();
+                    return true;
+                } else if (this.updateTexture()) {
+                    this.stats.recordCapture();
+                    // uploadFrame restores the stage texture itself if it is compressed
+                    return this.uploadFrame(toStageTexture ? this.texture : dst, dstX, dstY, this.tBuffer, this.pixelWidth, this.pixelHeight);
+                }
+            } else {
+                this.recordSkip();
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isStreaming() {
+        if (this.uploadMode == GLFXUploadMode.DIRECT || this.streamingUnsupported) {
+            return false;
+        } else if (!GLFXStreamingUploader.isSupported()) {
+            LOGGER.warn("Streaming uploads are not supported by the current context; falling back to direct uploads.");
+            this.streamingUnsupported = true;
+            return false;
+        } else {
+            return true;
+        }
+    }
+
+    private boolean captureZeroCopy(final GLTexture dst, final int dstX, final int dstY) {
+        if (this.uploadMode != GLFXUploadMode.ZERO_COPY || this.emScene == null || !this.isStreaming()) {
+            return false;
+        } else if (this.hitTesting || !this.frameRecorders.isEmpty()) {
+            // the hit mask and the recorders read the frame from client memory
+            return false;
+        }
+
+        final int captureWidth = this.pixelWidth;
+        final int captureHeight = this.pixelHeight;
+
+        if (captureWidth < 1 || captureHeight < 1) {
+            return false;
+        }
+
+        final GLFXStreamingUploader uploader = this.streamingUploader.get();
+
+        if (uploader.capture(this.emScene, captureWidth, captureHeight)) {
+            // the compressed texture is only replaced once there is a frame to fill it with
+            final GLTexture target = this.compressed && dst == this.texture ? this.decompressTexture() : dst;
+
+            uploader.submitCapture(target, dstX, dstY);
+            // the frame never passed through the tracker, so its copy of the previous frame is stale
+            this.dirtyRegions.invalidate();
+            this.stats.recordUpload(captureWidth * captureHeight * Integer.BYTES, 1, 0);
+            return true;
+        } else {
+            LOGGER.trace("No pixel buffer could be filled; capturing frame into client memory.");
+            return false;
+        }
+    }
+
+    // returns false if the frame matched the previous one and nothing was uploaded
+    private boolean uploadFrame(
+            final GLTexture target, final int dstX, final int dstY,
+            final ByteBuffer frame, final int frameWidth, final int frameHeight) {
+
+        this.recordFrame(frame, frameWidth, frameHeight);
+
+        final int regionCount;
+        // bytes copied into the tracker's copy of the previous frame
+        int copiedBytes = 0;
+
+        if (this.dirtyRegionTracking) {
+            regionCount = this.dirtyRegions.update(frame, frameWidth, frameHeight);
+
+            for (int i = 0; i < regionCount; i++) {
+                copiedBytes += this.dirtyRegions.getRegionWidth(i) * this.dirtyRegions.getRegionHeight(i) * Integer.BYTES;
+            }
+        } else {
+            this.dirtyRegions.markAllDirty(frameWidth, frameHeight);
+            regionCount = 1;
+        }
+
+        if (regionCount == 0) {
+            this.stats.recordUpload(0, 0, 0);
+            return false;
+        }
+
+        final GLTexture dst;
+
+        if (this.compressed && target == this.texture) {
+            // the compressed texture cannot be patched; restore it and send the whole frame
+            dst = this.decompressTexture();
+            this.dirtyRegions.markAllDirty(frameWidth, frameHeight);
+        } else {
+            dst = target;
+        }
+
+        if (this.hitTesting) {
+            for (int i = 0; i < this.dirtyRegions.getRegionCount(); i++) {
+                this.hitMask.update(frame, frameWidth, frameHeight,
+                        this.dirtyRegions.getRegionX(i), this.dirtyRegions.getRegionY(i),
+                        this.dirtyRegions.getRegionWidth(i), this.dirtyRegions.getRegionHeight(i));
+            }
+        }
+
+        if (this.isStreaming()) {
+            // each texture update from a pixel buffer needs its own buffer; send the bounding box
+            this.dirtyRegions.collapseRegions();
+
+            final int x = this.dirtyRegions.getRegionX(0);
+            final int y = this.dirtyRegions.getRegionY(0);
+            final int w = this.dirtyRegions.getRegionWidth(0);
+            final int h = this.dirtyRegions.getRegionHeight(0);
+
+            if (this.streamingUploader.get().upload(dst, dstX, dstY, frame, frameWidth, x, y, w, h)) {
+                this.stats.recordUpload(w * h * Integer.BYTES, 1, copiedBytes + w * h * Integer.BYTES);
+                return true;
+            }
+
+            LOGGER.trace("All pixel buffers are busy; uploading frame directly.");
+        }
+
+        final int frameSize = frameWidth * frameHeight * Integer.BYTES;
+
+        if (this.uBuffer == null || this.uBuffer.capacity() < frameSize) {
+            if (this.uBuffer != null) {
+                MemoryUtil.memFree(this.uBuffer);
+            }
+
+            this.uBuffer = MemoryUtil.memAlloc(frameSize);
+        }
+
+        // regions never overlap, so packing them back-to-back always fits in a frame-sized buffer
+        final int uploadCount = this.dirtyRegions.getRegionCount();
+        int offset = 0;
+
+        for (int i = 0; i < uploadCount; i++) {
+            final int x = this.dirtyRegions.getRegionX(i);
+            final int y = this.dirtyRegions.getRegionY(i);
+            final int w = this.dirtyRegions.getRegionWidth(i);
+            final int h = this.dirtyRegions.getRegionHeight(i);
+            final int regionSize = w * h * Integer.BYTES;
+
+            GLFXDirtyRegionTracker.copyRegion(frame, frameWidth, x, y, w, h, this.uBuffer, offset);
+
+            this.uBuffer.limit(offset + regionSize).position(offset);
+            dst.updateImage(0, dstX + x, dstY + y, w, h, GLTextureFormat.GL_BGRA, GLType.GL_UNSIGNED_BYTE, this.uBuffer);
+            this.uBuffer.clear();
+
+            offset += regionSize;
+        }
+
+        this.stats.recordUpload(offset, uploadCount, copiedBytes + offset);
+        return true;
+    }
+
+    public GLTask newTextureBindTask(int loc){
+        final GLTask bindTask = GLTask.create(() -> {
+            getAndUpdateTexture();
+
+            this.texture.bind(loc);
+        });
+
+        return bindTask;
+    }
+
+    /**
+     * Creates a new GLTask that draws the stage. The task may be kept and run
+     * every frame; the projection is only recalculated after the stage or the
+     * parent window is resized. The blend mode and sampling are read each
+     * time the task runs; a blend mode other than UNCHANGED leaves its blend
+     * state applied.
+     *
+     * @return the GLTask.
+     * @since 15.09.21
+     */
+    public GLTask newDrawTask() {
+        final int bindLoc = 0;
+
+        return GLTask.create(() -> {
+            if (this.projectionChanged) {
+                this.projectionChanged = false;
+                GLFXProjection.setOrtho(this.projection, (double) this.windowWidth / this.width, (double) this.windowHeight / this.height);
+            }
+
+            final GLFXBlendMode currentBlendMode = this.blendMode;
+            final boolean bicubic = this.sampling == GLFXSampling.BICUBIC;
+            final int variant = (bicubic ? VARIANT_BICUBIC : 0)
+                    | (currentBlendMode == GLFXBlendMode.STRAIGHT ? VARIANT_STRAIGHT_ALPHA : 0);
+            final GLProgram program = PROGRAM_VARIANTS[variant].get();
+
+            // the texture may be recreated by the update
+            this.getAndUpdateTexture().bind(bindLoc);
+
+            program.use();
+            program.setUniformI("fxTexture", bindLoc);
+            program.setUniformMatrixF("vProj", this.projection);
+
+            if (bicubic) {
+                program.setUniformF("fxTextureSize", this.textureWidth, this.textureHeight);
+                program.setUniformF("fxMaxUV", this.maxU, this.maxV);
+            }
+
+            currentBlendMode.apply();
+            this.vao.get().drawArrays(GLDrawMode.GL_TRIANGLE_STRIP, 0, 4);
+        });
+    }
+
+    /**
+     * A GLKeyListener that handles all key press and release events needed by
+     * the JavaFX objects.
+     *
+     * @since 15.09.21
+     */
+    public class KeyListener implements GLKeyListener {
+
+        @Override
+        public void keyActionPerformed(GLWindow glw, int key, int scanCode, GLKeyAction action, Set<GLKeyModifier> modifiers) {
+            inputQueue.offer(GLFXInputQueue.TYPE_KEY, key, scanCode, action.ordinal(), GLFXKeyMap.toGLFWModifiers(modifiers), 0.0, 0.0);
+        }
+    }
+
+    /**
+     * A GLKeyCharListener that handles all key type events needed by the JavaFX
+     * objects.
+     *
+     * @since 15.09.21
+     */
+    public class KeyCharListener implements GLKeyCharListener {
+
+        @Override
+        public void charTypePerformed(GLWindow glw, char c) {
+            inputQueue.offer(GLFXInputQueue.TYPE_CHAR, c, 0, 0, 0, 0.0, 0.0);
+        }
+    }
+
+    private boolean leftButton = false;
+    private boolean rightButton = false;
+    private boolean middleButton = false;
+    private int mouseX = 0;
+    private int mouseY = 0;
+    private int mouseAbsX = 0;
+    private int mouseAbsY = 0;
+    private boolean shift = false;
+    private boolean alt = false;
+    private boolean ctrl = false;
+    private boolean meta = false;
+
+    /**
+     * A GLMouseButtonListener that handles all mouse click events needed by the
+     * JavaFX objects.
+     *
+     * @since 15.09.21
+     */
+    public class MouseButtonListener implements GLMouseButtonListener {
+
+        @Override
+        public void mouseButtonActionPerformed(GLWindow glw, int button, GLMouseButtonAction action, Set<GLKeyModifier> set) {
+            inputQueue.offer(GLFXInputQueue.TYPE_MOUSE_BUTTON, button, 0, action.ordinal(), GLFXKeyMap.toGLFWModifiers(set), 0.0, 0.0);
+        }
+    }
+
+    /**
+     * A GLMousePositionListener that handles all mouse movement needed by the
+     * JavaFX objects.
+     *
+     * @since 15.09.21
+     */
+    public class MousePositionListener implements GLMousePositionListener {
+
+        @Override
+        public void mousePositionActionPerformed(GLWindow glw, double x, double y) {
+            inputQueue.offer(GLFXInputQueue.TYPE_MOUSE_MOVE, 0, 0, 0, 0, x, y);
+        }
+    }
+
+    public class MouseScrollListener implements GLMouseScrollListener {
+
+        @Override
+        public void mouseScrollActionPerformed(GLWindow glw, double x, double y) {
+            inputQueue.offer(GLFXInputQueue.TYPE_MOUSE_SCROLL, 0, 0, 0, 0, x, y);
+        }
+    }
+
+    public class StageResizeListener implements GLFramebufferResizeListener {
+
+        @Override
+        public void framebufferResizedActionPerformed(GLWindow glw, GLViewport view) {
+            Platform.runLater(() -> {
+                GLFXStage.this.setParentWindowSize(view.width, view.height);
+            });
+        }
+    }
+
+    // key presses and releases carry no characters; safe to share since it is never written
+    private static final char[] NO_CHARS = new char[0];
+    private static final GLKeyAction[] KEY_ACTIONS = GLKeyAction.values();
+    private static final GLMouseButtonAction[] MOUSE_BUTTON_ACTIONS = GLMouseButtonAction.values();
+
+    private void dispatchInput(
+            final int type, final int code, final int scanCode, final int action, final int mods,
+            final double x, final double y) {
+
+        switch (type) {
+            case GLFXInputQueue.TYPE_KEY:
+                this.doKeyEvent(code, scanCode, KEY_ACTIONS[action], mods);
+                break;
+            case GLFXInputQueue.TYPE_CHAR:
+                this.doKeyCharEvent((char) code);
+                break;
+            case GLFXInputQueue.TYPE_MOUSE_BUTTON:
+                this.doMouseButtonEvent(code, MOUSE_BUTTON_ACTIONS[action], Collections.emptySet());
+                break;
+            case GLFXInputQueue.TYPE_MOUSE_MOVE:
+                this.doMousePositionEvent(x, y);
+                break;
+            case GLFXInputQueue.TYPE_MOUSE_SCROLL:
+                this.doMouseScrollEvent(x, y);
+                break;
+            default:
+                LOGGER.warn("Unknown input event type: {}", type);
+        }
+    }
+
+    /**
+     * Retrieves the number of input events waiting to be forwarded to the
+     * JavaFX scene.
+     *
+     * @return the input queue depth.
+     * @since 26.10.18
+     */
+    public int getInputQueueDepth() {
+        return this.inputQueue.getDepth();
+    }
+
+    private Reference<GLWindow> window = null;
+    private volatile Reference<GLWindow> cursorWindow = null;
+    private volatile double windowOffsetX = 0.0;
+    private volatile double windowOffsetY = 0.0;
+    private final Set<Object> activeListeners = new HashSet<>();
+
+    public void addEvents(GLWindow window) {
+        Objects.requireNonNull(window);
+
+        if (this.headless) {
+            throw new IllegalStateException("Headless stages cannot receive window events!");
+        }
+
+        this.window = new WeakReference<>(window);
+
+        final GLKeyCharListener kcListener = new KeyCharListener();
+        final GLKeyListener kListener = new KeyListener();
+        final GLMouseButtonListener mbListener = new MouseButtonListener();
+        final GLMousePositionListener mpListener = new MousePositionListener();
+        final GLMouseScrollListener msListener = new MouseScrollListener();
+        final GLFramebufferResizeListener fbListener = new StageResizeListener();
+
+        activeListeners.addAll(Arrays.asList(kcListener, kListener, mbListener, mpListener, msListener, fbListener));
+
+        window.getKeyboard().addCharListener(kcListener);
+        window.getKeyboard().addKeyListener(kListener);
+        window.getMouse().addButtonListener(mbListener);
+        window.getMouse().addPositionListener(mpListener);
+        window.getMouse().addScrollListener(msListener);
+        window.addWindowResizeListener(fbListener);
+    }
+
+    public void removeEvents(GLWindow window) {
         if (this.window == null) {
             return;
         } else if (this.window.get() != window) {
@@ -921,120 +2606,21 @@ public class GLFXStage extends GLObject {
     }
 
     public void doKeyEvent(int key, int scanCode, GLKeyAction action, Set<GLKeyModifier> modifiers) {
+        this.doKeyEvent(key, scanCode, action, GLFXKeyMap.toGLFWModifiers(modifiers));
+    }
+
+    private void doKeyEvent(int key, int scanCode, GLKeyAction action, int modifiers) {
         if (!focus) {
             return;
         }
 
-        int keyId = -1;
-        int mods = 0;
-
-        if (modifiers.contains(GLKeyModifier.ALT)) {
-            mods |= AbstractEvents.MODIFIER_ALT;
-        }
-
-        if (modifiers.contains(GLKeyModifier.CONTROL)) {
-            mods |= AbstractEvents.MODIFIER_CONTROL;
-        }
-
-        if (modifiers.contains(GLKeyModifier.SHIFT)) {
-            mods |= AbstractEvents.MODIFIER_SHIFT;
-        }
-
-        if (modifiers.contains(GLKeyModifier.SUPER)) {
-            mods |= AbstractEvents.MODIFIER_META;
-        }
-
-        switch (key) {
-            case GLFW_KEY_ENTER:
-                keyId = com.sun.glass.events.KeyEvent.VK_ENTER;
-                break;
-            case GLFW_KEY_BACKSPACE:
-                keyId = com.sun.glass.events.KeyEvent.VK_BACKSPACE;
-                break;
-            case GLFW_KEY_LEFT:
-                keyId = com.sun.glass.events.KeyEvent.VK_LEFT;
-                break;
-            case GLFW_KEY_RIGHT:
-                keyId = com.sun.glass.events.KeyEvent.VK_RIGHT;
-                break;
-            case GLFW_KEY_UP:
-                keyId = com.sun.glass.events.KeyEvent.VK_UP;
-                break;
-            case GLFW_KEY_DOWN:
-                keyId = com.sun.glass.events.KeyEvent.VK_DOWN;
-                break;
-            case GLFW_KEY_TAB:
-                keyId = com.sun.glass.events.KeyEvent.VK_TAB;
-                break;
-            case GLFW_KEY_DELETE:
-                keyId = com.sun.glass.events.KeyEvent.VK_DELETE;
-                break;
-            case GLFW_KEY_HOME:
-                keyId = com.sun.glass.events.KeyEvent.VK_HOME;
-                break;
-            case GLFW_KEY_END:
-                keyId = com.sun.glass.events.KeyEvent.VK_END;
-                break;
-            case GLFW_KEY_PAGE_UP:
-                keyId = com.sun.glass.events.KeyEvent.VK_PAGE_UP;
-                break;
-            case GLFW_KEY_PAGE_DOWN:
-                keyId = com.sun.glass.events.KeyEvent.VK_PAGE_DOWN;
-                break;
-            case GLFW_KEY_INSERT:
-                keyId = com.sun.glass.events.KeyEvent.VK_INSERT;
-                break;
-            case GLFW_KEY_ESCAPE:
-                keyId = com.sun.glass.events.KeyEvent.VK_ESCAPE;
-                break;
-            case GLFW_KEY_CAPS_LOCK:
-                keyId = com.sun.glass.events.KeyEvent.VK_CAPS_LOCK;
-                break;
-            case GLFW_KEY_PAUSE:
-                keyId = com.sun.glass.events.KeyEvent.VK_PAUSE;
-                break;
-            case GLFW_KEY_PRINT_SCREEN:
-                keyId = com.sun.glass.events.KeyEvent.VK_PRINTSCREEN;
-                break;
-            case GLFW_KEY_LEFT_SHIFT:
-            case GLFW_KEY_RIGHT_SHIFT:
-                keyId = com.sun.glass.events.KeyEvent.VK_SHIFT;
-                break;
-            case GLFW_KEY_LEFT_CONTROL:
-            case GLFW_KEY_RIGHT_CONTROL:
-                keyId = com.sun.glass.events.KeyEvent.VK_CONTROL;
-                break;
-            case GLFW_KEY_LEFT_ALT:
-            case GLFW_KEY_RIGHT_ALT:
-                keyId = com.sun.glass.events.KeyEvent.VK_ALT;
-                break;
-            case GLFW_KEY_NUM_LOCK:
-                keyId = com.sun.glass.events.KeyEvent.VK_NUM_LOCK;
-                break;
-            case GLFW_KEY_SCROLL_LOCK:
-                keyId = com.sun.glass.events.KeyEvent.VK_SCROLL_LOCK;
-                break;
-            case 348:
-                keyId = com.sun.glass.events.KeyEvent.VK_CONTEXT_MENU;
-                break;
-            default:
-                if (key >= GLFW_KEY_KP_0 && key <= GLFW_KEY_KP_9) {
-                    // numpad keys
-                    keyId = com.sun.glass.events.KeyEvent.VK_NUMPAD0 + (key - GLFW_KEY_KP_0);
-                }else if (key >= GLFW_KEY_F1 && key <= GLFW_KEY_F25) {
-                    // F1 -> F25
-                    keyId = com.sun.glass.events.KeyEvent.VK_F1 + (key - GLFW_KEY_F1);
-                }else if (key > 0) {
-                    keyId = key; // yolo -\_0_0_/-
-                }
-        }
-        // TODO:
-        // keyId = com.sun.glass.events.KeyEvent.VK_CONTEXT_MENU;
+        final int keyId = GLFXKeyMap.toJavaFXKey(key);
+        final int mods = GLFXKeyMap.toJavaFXModifiers(modifiers);
 
-        GLFXStage.this.shift = modifiers.contains(GLKeyModifier.SHIFT);
-        GLFXStage.this.alt = modifiers.contains(GLKeyModifier.ALT);
-        GLFXStage.this.ctrl = modifiers.contains(GLKeyModifier.CONTROL);
-        GLFXStage.this.meta = modifiers.contains(GLKeyModifier.SUPER);
+        GLFXStage.this.shift = (modifiers & GLFW.GLFW_MOD_SHIFT) != 0;
+        GLFXStage.this.alt = (modifiers & GLFW.GLFW_MOD_ALT) != 0;
+        GLFXStage.this.ctrl = (modifiers & GLFW.GLFW_MOD_CONTROL) != 0;
+        GLFXStage.this.meta = (modifiers & GLFW.GLFW_MOD_SUPER) != 0;
 
         switch (action) {
             case KEY_PRESSED:
@@ -1043,7 +2629,7 @@ public class GLFXStage extends GLObject {
                     GLFXStage.this.emScene.keyEvent(
                             AbstractEvents.KEYEVENT_PRESSED,
                             keyId,
-                            new char[]{}, mods);
+                            NO_CHARS, mods);
                 }
                 break;
             case KEY_RELEASE:
@@ -1060,7 +2646,7 @@ public class GLFXStage extends GLObject {
                     GLFXStage.this.emScene.keyEvent(
                             AbstractEvents.KEYEVENT_RELEASED,
                             keyId,
-                            new char[]{}, mods);
+                            NO_CHARS, mods);
                 }
                 break;
         }
@@ -1128,10 +2714,8 @@ public class GLFXStage extends GLObject {
             return;
         }
 
-        MousePos mouse = transformMouse(x, y);
+        transformMouse(x, y);
 
-        GLFXStage.this.mouseX = (int) mouse.x;
-        GLFXStage.this.mouseY = (int) mouse.y;
         GLFXStage.this.mouseAbsX = GLFXStage.this.mouseX + oldEMX;
         GLFXStage.this.mouseAbsY = GLFXStage.this.mouseY + oldEMY;
 
@@ -1161,7 +2745,8 @@ public class GLFXStage extends GLObject {
                     0, false);
         }
 
-        dndHandler.mousePosition(GLFXStage.this.mouseX, GLFXStage.this.mouseY, GLFXStage.this.mouseAbsX, GLFXStage.this.mouseAbsY);
+        dndHandler.mousePosition(GLFXStage.this.mouseX, GLFXStage.this.mouseY, GLFXStage.this.mouseAbsX, GLFXStage.this.mouseAbsY,
+                x + GLFXStage.this.windowOffsetX, y + GLFXStage.this.windowOffsetY);
     }
 
     public void doMouseScrollEvent(double x, double y) {
@@ -1174,6 +2759,42 @@ public class GLFXStage extends GLObject {
 
     public void clean() {
         this.texture.delete();
+        this.dirtyRegions.free();
+
+        if (this.tBuffer != null) {
+            MemoryUtil.memFree(this.tBuffer);
+            this.tBuffer = null;
+            this.tPixels = null;
+        }
+
+        if (this.uBuffer != null) {
+            MemoryUtil.memFree(this.uBuffer);
+            this.uBuffer = null;
+        }
+
+        this.asyncCapture = false;
+
+        synchronized (this.captureBuffer) {
+            this.captureBuffer.free();
+        }
+
+        synchronized (this.pulseLock) {
+            if (this.pulseBuffer != null) {
+                MemoryUtil.memFree(this.pulseBuffer);
+                this.pulseBuffer = null;
+            }
+        }
+
+        final CompressedFrame encoded = this.encodedFrame.getAndSet(null);
+
+        if (encoded != null) {
+            MemoryUtil.memFree(encoded.blocks);
+        }
+
+        this.compressed = false;
+        // the index may only be touched on the JavaFX thread
+        Platform.runLater(this.nodeIndex::clear);
+        this.streamingUploader.ifInitialized(GLFXStreamingUploader::delete);
         this.vao.ifInitialized(GLVertexArray::delete);
         this.vPos.ifInitialized(GLBuffer::delete);
         this.vUVs.ifInitialized(GLBuffer::delete);
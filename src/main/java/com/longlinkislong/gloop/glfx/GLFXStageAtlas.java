@@ -0,0 +1,493 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import com.longlinkislong.gloop.GLBuffer;
+import com.longlinkislong.gloop.GLBufferUsage;
+import com.longlinkislong.gloop.GLDrawMode;
+import com.longlinkislong.gloop.GLMat4D;
+import com.longlinkislong.gloop.GLObject;
+import com.longlinkislong.gloop.GLProgram;
+import com.longlinkislong.gloop.GLTask;
+import com.longlinkislong.gloop.GLTexture;
+import com.longlinkislong.gloop.GLTextureFormat;
+import com.longlinkislong.gloop.GLTextureInternalFormat;
+import com.longlinkislong.gloop.GLTextureMagFilter;
+import com.longlinkislong.gloop.GLTextureMinFilter;
+import com.longlinkislong.gloop.GLTextureParameters;
+import com.longlinkislong.gloop.GLTextureWrap;
+import com.longlinkislong.gloop.GLThread;
+import com.longlinkislong.gloop.GLTools;
+import com.longlinkislong.gloop.GLType;
+import com.longlinkislong.gloop.GLVertexArray;
+import com.longlinkislong.gloop.GLVertexAttributeSize;
+import com.longlinkislong.gloop.GLVertexAttributeType;
+import com.runouw.util.Lazy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import org.lwjgl.system.MemoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * GLFXStageAtlas packs many small GLFXStages into a single texture and draws
+ * all of them with one draw call. Each stage is captured directly into its
+ * rectangle of the atlas; the stages' own textures are never allocated.
+ *
+ * @since 26.10.18
+ */
+public class GLFXStageAtlas extends GLObject {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GLFXStageAtlas.class);
+    // transparent pixels around each stage so linear filtering never samples a neighbour
+    private static final int PADDING = 1;
+    private static final int FLOATS_PER_STAGE = 6 * 2;
+
+    private static final class Entry {
+
+        final GLFXStage stage;
+        int x;
+        int y;
+        int atlasX;
+        int atlasY;
+        int packedWidth;
+        int packedHeight;
+        boolean packed;
+        boolean visible;
+
+        Entry(final GLFXStage stage) {
+            this.stage = stage;
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final List<Entry> entries = new ArrayList<>();
+    private final GLMat4D projection = GLFXProjection.newOrtho();
+    private int windowWidth = 1;
+    private int windowHeight = 1;
+    private boolean needsPack = true;
+    private boolean needsVertices = true;
+    private boolean needsProjection = true;
+    private int vertexCount = 0;
+    private float[] positions = new float[0];
+    private float[] uvs = new float[0];
+
+    private final Lazy<GLTexture> texture = new Lazy<>(() -> {
+        final GLTexture out = new GLTexture(this.getThread());
+
+        out.setName("GLFXStageAtlas.texture");
+        out.allocate(1, GLTextureInternalFormat.GL_RGBA8, this.width, this.height);
+        out.setAttributes(new GLTextureParameters()
+                .withFilter(GLTextureMinFilter.GL_LINEAR, GLTextureMagFilter.GL_LINEAR)
+                .withWrap(GLTextureWrap.GL_CLAMP_TO_EDGE, GLTextureWrap.GL_CLAMP_TO_EDGE, GLTextureWrap.GL_CLAMP_TO_EDGE));
+
+        return out;
+    });
+
+    private final Lazy<GLBuffer> vPos = new Lazy<>(() -> {
+        final GLBuffer out = new GLBuffer(this.getThread());
+
+        out.setName("GLFXStageAtlas.vPos");
+        return out;
+    });
+
+    private final Lazy<GLBuffer> vUVs = new Lazy<>(() -> {
+        final GLBuffer out = new GLBuffer(this.getThread());
+
+        out.setName("GLFXStageAtlas.vUVs");
+        return out;
+    });
+
+    private final Lazy<GLVertexArray> vao = new Lazy<>(() -> {
+        final GLVertexArray out = new GLVertexArray(this.getThread());
+
+        out.setName("GLFXStageAtlas.vao");
+        out.attachBuffer(
+                GLFXStage.ATTRIBUTES.getLocation("vPos"), this.vPos.get(),
+                GLVertexAttributeType.GL_FLOAT, GLVertexAttributeSize.VEC2);
+        out.attachBuffer(
+                GLFXStage.ATTRIBUTES.getLocation("vUVs"), this.vUVs.get(),
+                GLVertexAttributeType.GL_FLOAT, GLVertexAttributeSize.VEC2);
+
+        return out;
+    });
+
+    /**
+     * Constructs a new GLFXStageAtlas on the specified thread.
+     *
+     * @param thread the thread to use.
+     * @param width the width of the atlas texture.
+     * @param height the height of the atlas texture.
+     * @since 26.10.18
+     */
+    public GLFXStageAtlas(final GLThread thread, final int width, final int height) {
+        super(thread);
+
+        if (width < 1) {
+            throw new IllegalArgumentException("Width [" + width + "] must be at least 1!");
+        } else if (height < 1) {
+            throw new IllegalArgumentException("Height [" + height + "] must be at least 1!");
+        }
+
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Constructs a new GLFXStageAtlas on the default thread used by GLObject.
+     *
+     * @param width the width of the atlas texture.
+     * @param height the height of the atlas texture.
+     * @since 26.10.18
+     */
+    public GLFXStageAtlas(final int width, final int height) {
+        this(GLThread.getDefaultInstance(), width, height);
+    }
+
+    /**
+     * Adds a stage to the atlas. The stage is drawn at (0, 0) until a position
+     * is set.
+     *
+     * @param stage the stage to add.
+     * @since 26.10.18
+     */
+    public synchronized void add(final GLFXStage stage) {
+        Objects.requireNonNull(stage);
+
+        if (this.find(stage) == null) {
+            this.entries.add(new Entry(stage));
+            this.needsPack = true;
+        }
+    }
+
+    /**
+     * Removes a stage from the atlas.
+     *
+     * @param stage the stage to remove.
+     * @since 26.10.18
+     */
+    public synchronized void remove(final GLFXStage stage) {
+        final Entry entry = this.find(stage);
+
+        if (entry != null) {
+            this.entries.remove(entry);
+            this.needsPack = true;
+        }
+    }
+
+    /**
+     * Sets where a stage is drawn in the parent window.
+     *
+     * @param stage the stage.
+     * @param x the x-offset in pixels from the left of the window.
+     * @param y the y-offset in pixels from the top of the window.
+     * @since 26.10.18
+     */
+    public synchronized void setPosition(final GLFXStage stage, final int x, final int y) {
+        final Entry entry = this.find(stage);
+
+        if (entry == null) {
+            throw new IllegalArgumentException("Stage is not part of this atlas!");
+        } else if (entry.x != x || entry.y != y) {
+            entry.x = x;
+            entry.y = y;
+            this.needsVertices = true;
+        }
+    }
+
+    /**
+     * Sets the size of the window the stages are drawn to.
+     *
+     * @param newWidth the window width.
+     * @param newHeight the window height.
+     * @since 26.10.18
+     */
+    public synchronized void setWindowSize(final int newWidth, final int newHeight) {
+        if (newWidth > 0 && newHeight > 0) {
+            this.windowWidth = newWidth;
+            this.windowHeight = newHeight;
+            this.needsProjection = true;
+        } else {
+            LOGGER.debug("Window resize rejected; width or height is less than 1.");
+        }
+    }
+
+    /**
+     * Retrieves the atlas texture.
+     *
+     * @return the atlas texture.
+     * @since 26.10.18
+     */
+    public GLTexture getTexture() {
+        return this.texture.get();
+    }
+
+    private Entry find(final GLFXStage stage) {
+        for (Entry entry : this.entries) {
+            if (entry.stage == stage) {
+                return entry;
+            }
+        }
+
+        return null;
+    }
+
+    private void pack(final GLTexture atlas) {
+        final List<Entry> sorted = new ArrayList<>(this.entries);
+
+        // shelf packing works best with the tallest rectangles first
+        sorted.sort(Comparator.comparingInt((Entry entry) -> entry.stage.getPixelHeight()).reversed());
+
+        int shelfX = 0;
+        int shelfY = 0;
+        int shelfHeight = 0;
+
+        for (Entry entry : sorted) {
+            final int w = entry.stage.getPixelWidth();
+            final int h = entry.stage.getPixelHeight();
+
+            if (shelfX + w > this.width) {
+                shelfY += shelfHeight + PADDING;
+                shelfX = 0;
+                shelfHeight = 0;
+            }
+
+            entry.packedWidth = w;
+            entry.packedHeight = h;
+
+            if (w > this.width || shelfY + h > this.height) {
+                LOGGER.warn("GLFXStage [{}x{}] does not fit in [{}x{}] atlas; it will not be drawn.", w, h, this.width, this.height);
+                entry.packed = false;
+                continue;
+            }
+
+            entry.atlasX = shelfX;
+            entry.atlasY = shelfY;
+            entry.packed = true;
+            entry.stage.invalidateUpload();
+
+            shelfX += w + PADDING;
+            shelfHeight = Math.max(shelfHeight, h);
+        }
+
+        this.clearGutters(atlas);
+        this.needsPack = false;
+        this.needsVertices = true;
+    }
+
+    private void clearGutters(final GLTexture atlas) {
+        // the texture starts undefined and old stages leave pixels behind when the atlas is repacked
+        final ByteBuffer zeros = MemoryUtil.memCalloc(Math.max(this.width, this.height) * Integer.BYTES);
+
+        try {
+            for (Entry entry : this.entries) {
+                if (!entry.packed) {
+                    continue;
+                }
+
+                final int x0 = Math.max(entry.atlasX - PADDING, 0);
+                final int x1 = Math.min(entry.atlasX + entry.packedWidth + PADDING, this.width);
+                final int y0 = entry.atlasY;
+                final int y1 = Math.min(entry.atlasY + entry.packedHeight, this.height);
+
+                if (entry.atlasY > 0) {
+                    clear(atlas, zeros, x0, entry.atlasY - PADDING, x1 - x0, PADDING);
+                }
+
+                if (y1 < this.height) {
+                    clear(atlas, zeros, x0, y1, x1 - x0, PADDING);
+                }
+
+                if (entry.atlasX > 0) {
+                    clear(atlas, zeros, entry.atlasX - PADDING, y0, PADDING, y1 - y0);
+                }
+
+                if (entry.atlasX + entry.packedWidth < this.width) {
+                    clear(atlas, zeros, entry.atlasX + entry.packedWidth, y0, PADDING, y1 - y0);
+                }
+            }
+        } finally {
+            MemoryUtil.memFree(zeros);
+        }
+    }
+
+    private static void clear(final GLTexture atlas, final ByteBuffer zeros, final int x, final int y, final int w, final int h) {
+        if (w > 0 && h > 0) {
+            zeros.limit(w * h * Integer.BYTES).position(0);
+            atlas.updateImage(0, x, y, w, h, GLTextureFormat.GL_BGRA, GLType.GL_UNSIGNED_BYTE, zeros);
+            zeros.clear();
+        }
+    }
+
+    private void buildVertices() {
+        final int maxFloats = this.entries.size() * FLOATS_PER_STAGE;
+
+        if (this.positions.length < maxFloats) {
+            this.positions = new float[maxFloats];
+            this.uvs = new float[maxFloats];
+            // the buffers grow with the arrays; uploads only replace their contents
+            this.vPos.get().allocate(maxFloats * Float.BYTES, GLBufferUsage.GL_DYNAMIC_DRAW);
+            this.vUVs.get().allocate(maxFloats * Float.BYTES, GLBufferUsage.GL_DYNAMIC_DRAW);
+        }
+
+        int offset = 0;
+
+        for (Entry entry : this.entries) {
+            if (!entry.packed || !entry.visible) {
+                continue;
+            }
+
+            final float x0 = entry.x;
+            final float y0 = entry.y;
+            // the quad keeps the stage size; the packed size includes the render scale
+            final float x1 = entry.x + entry.stage.getWidth();
+            final float y1 = entry.y + entry.stage.getHeight();
+            final float u0 = (float) entry.atlasX / this.width;
+            final float v0 = (float) entry.atlasY / this.height;
+            final float u1 = (float) (entry.atlasX + entry.packedWidth) / this.width;
+            final float v1 = (float) (entry.atlasY + entry.packedHeight) / this.height;
+
+            offset = putQuad(this.positions, offset, x0, y0, x1, y1);
+            putQuad(this.uvs, offset - FLOATS_PER_STAGE, u0, v0, u1, v1);
+        }
+
+        this.vertexCount = offset / 2;
+
+        if (this.vertexCount > 0) {
+            this.vPos.get().upload(GLTools.wrapFloat(Arrays.copyOf(this.positions, offset)));
+            this.vUVs.get().upload(GLTools.wrapFloat(Arrays.copyOf(this.uvs, offset)));
+        }
+
+        this.needsVertices = false;
+    }
+
+    private static int putQuad(final float[] dst, int offset, final float x0, final float y0, final float x1, final float y1) {
+        // two triangles: (x0, y0) (x0, y1) (x1, y0) and (x1, y0) (x0, y1) (x1, y1)
+        dst[offset++] = x0;
+        dst[offset++] = y0;
+        dst[offset++] = x0;
+        dst[offset++] = y1;
+        dst[offset++] = x1;
+        dst[offset++] = y0;
+        dst[offset++] = x1;
+        dst[offset++] = y0;
+        dst[offset++] = x0;
+        dst[offset++] = y1;
+        dst[offset++] = x1;
+        dst[offset++] = y1;
+        return offset;
+    }
+
+    private synchronized void update() {
+        boolean resized = false;
+
+        for (Entry entry : this.entries) {
+            if (entry.packedWidth != entry.stage.getPixelWidth() || entry.packedHeight != entry.stage.getPixelHeight()) {
+                resized = true;
+                break;
+            }
+        }
+
+        final GLTexture atlas = this.texture.get();
+
+        if (this.needsPack || resized) {
+            this.pack(atlas);
+        }
+
+        for (Entry entry : this.entries) {
+            final boolean visible = entry.stage.isVisible();
+
+            if (entry.visible != visible) {
+                entry.visible = visible;
+                this.needsVertices = true;
+            }
+
+            if (entry.packed) {
+                entry.stage.captureAndUpload(atlas, entry.atlasX, entry.atlasY);
+            }
+        }
+
+        if (this.needsVertices) {
+            this.buildVertices();
+        }
+
+        if (this.needsProjection) {
+            GLFXProjection.setOrtho(this.projection, this.windowWidth, this.windowHeight);
+            this.needsProjection = false;
+        }
+    }
+
+    /**
+     * Creates a new GLTask that captures all stages into the atlas and draws
+     * every visible stage with a single draw call.
+     *
+     * @return the GLTask.
+     * @since 26.10.18
+     */
+    public GLTask newDrawTask() {
+        return GLTask.create(() -> {
+            this.update();
+
+            if (this.vertexCount == 0) {
+                return;
+            }
+
+            final GLProgram program = GLFXStage.PROGRAM.get();
+
+            program.use();
+            program.setUniformI("fxTexture", 0);
+            program.setUniformMatrixF("vProj", this.projection);
+            this.texture.get().bind(0);
+            this.vao.get().drawArrays(GLDrawMode.GL_TRIANGLES, 0, this.vertexCount);
+        });
+    }
+
+    /**
+     * Draws all visible stages.
+     *
+     * @since 26.10.18
+     */
+    public void draw() {
+        this.newDrawTask().glRun(this.getThread());
+    }
+
+    /**
+     * Deletes the atlas texture and vertex data. The stages are not deleted.
+     *
+     * @since 26.10.18
+     */
+    public void delete() {
+        this.texture.ifInitialized(GLTexture::delete);
+        this.vao.ifInitialized(GLVertexArray::delete);
+        this.vPos.ifInitialized(GLBuffer::delete);
+        this.vUVs.ifInitialized(GLBuffer::delete);
+    }
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import com.longlinkislong.gloop.GLBuffer;
+import com.longlinkislong.gloop.GLBufferUsage;
+import com.longlinkislong.gloop.GLDrawMode;
+import com.longlinkislong.gloop.GLException;
+import com.longlinkislong.gloop.GLMat4D;
+import com.longlinkislong.gloop.GLObject;
+import com.longlinkislong.gloop.GLProgram;
+import com.longlinkislong.gloop.GLShader;
+import com.longlinkislong.gloop.GLShaderType;
+import com.longlinkislong.gloop.GLTask;
+import com.longlinkislong.gloop.GLTexture;
+import com.longlinkislong.gloop.GLThread;
+import com.longlinkislong.gloop.GLTools;
+import com.longlinkislong.gloop.GLVertexArray;
+import com.longlinkislong.gloop.GLVertexAttributeSize;
+import com.longlinkislong.gloop.GLVertexAttributeType;
+import com.longlinkislong.gloop.GLVertexAttributes;
+import com.longlinkislong.gloop.GLWindow;
+import com.runouw.util.Lazy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.system.MemoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * GLFXStageBatch draws a list of GLFXStages with a single task. The program is
+ * bound and the projection is set once for the whole batch. Stage textures are
+ * bound to consecutive texture units and every stage is drawn by one
+ * instanced draw call, with its position, size and texture unit passed as
+ * per-instance attributes. Up to 16 stages share a draw call; larger batches
+ * use one instanced call per 16 stages. Contexts without instanced arrays
+ * fall back to one draw call per stage.
+ *
+ * @since 26.10.18
+ */
+public class GLFXStageBatch extends GLObject {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GLFXStageBatch.class);
+    private static final int TEXTURE_UNIT = 0;
+    // the number of samplers in fx_instanced.fs; every OpenGL 3 context has at least 16 texture units
+    private static final int MAX_INSTANCE_TEXTURES = 16;
+    // x, y, width, height, maxU, maxV, texture unit and padding
+    private static final int FLOATS_PER_INSTANCE = 8;
+    private static final int INSTANCE_STRIDE = FLOATS_PER_INSTANCE * Float.BYTES;
+
+    private static final GLVertexAttributes INSTANCED_ATTRIBUTES;
+
+    static {
+        INSTANCED_ATTRIBUTES = new GLVertexAttributes();
+        INSTANCED_ATTRIBUTES.setAttribute("vPos", 0);
+        INSTANCED_ATTRIBUTES.setAttribute("iRect", 2);
+        INSTANCED_ATTRIBUTES.setAttribute("iTexInfo", 3);
+    }
+
+    private static final Lazy<Boolean> INSTANCING_SUPPORTED = new Lazy<>(() -> {
+        switch (GLWindow.CLIENT_API) {
+            case OPENGL:
+                return GL.getCapabilities().OpenGL33 || GL.getCapabilities().GL_ARB_instanced_arrays;
+            default:
+                // the legacy shaders have no flat varyings
+                return false;
+        }
+    });
+
+    private static final Lazy<GLProgram> INSTANCED_PROGRAM = new Lazy<>(() -> {
+        try (InputStream inVsh = GLFXStageBatch.class.getResourceAsStream("fx_instanced.vs");
+                InputStream inFsh = GLFXStageBatch.class.getResourceAsStream("fx_instanced.fs")) {
+
+            final GLShader shVsh = new GLShader(GLShaderType.GL_VERTEX_SHADER, GLTools.readAll(inVsh));
+            final GLShader shFsh = new GLShader(GLShaderType.GL_FRAGMENT_SHADER, GLTools.readAll(inFsh));
+            final GLProgram program = new GLProgram();
+
+            program.setName("GLFXStageBatch.PROGRAM");
+            program.setVertexAttributes(INSTANCED_ATTRIBUTES);
+            program.linkShaders(shVsh, shFsh);
+
+            for (int i = 0; i < MAX_INSTANCE_TEXTURES; i++) {
+                program.setUniformI("fxTextures[" + i + "]", i);
+            }
+
+            shVsh.delete();
+            shFsh.delete();
+
+            return program;
+        } catch (IOException ioex) {
+            throw new GLException("Unable to load shaders!", ioex);
+        }
+    });
+
+    private static final class Entry {
+
+        final GLFXStage stage;
+        final GLMat4D transform = GLMat4D.ortho(0.0, 1.0, 1.0, 0.0, 0.0, 1.0).asStaticMat();
+        int x;
+        int y;
+        // the values the transform was last calculated for
+        int transformX = -1;
+        int transformY = -1;
+        int transformWidth = -1;
+        int transformHeight = -1;
+        int transformWindowWidth = -1;
+        int transformWindowHeight = -1;
+
+        Entry(final GLFXStage stage) {
+            this.stage = stage;
+        }
+
+        void updateTransform(final int windowWidth, final int windowHeight) {
+            final int w = this.stage.getWidth();
+            final int h = this.stage.getHeight();
+
+            if (this.transformX == this.x && this.transformY == this.y
+                    && this.transformWidth == w && this.transformHeight == h
+                    && this.transformWindowWidth == windowWidth && this.transformWindowHeight == windowHeight) {
+                return;
+            }
+
+            // maps the stage quad [0, 1] onto [x, x + w] and [y, y + h] in window pixels
+            this.transform.set(GLMat4D.ortho(
+                    -(double) this.x / w, (double) (windowWidth - this.x) / w,
+                    (double) (windowHeight - this.y) / h, -(double) this.y / h,
+                    -1, 1));
+
+            this.transformX = this.x;
+            this.transformY = this.y;
+            this.transformWidth = w;
+            this.transformHeight = h;
+            this.transformWindowWidth = windowWidth;
+            this.transformWindowHeight = windowHeight;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+    private int windowWidth = 1;
+    private int windowHeight = 1;
+    private final GLMat4D projection = GLFXProjection.newOrtho();
+    private boolean needsProjection = true;
+    // the textures of the stages in the current draw call, indexed by texture unit
+    private final GLTexture[] instanceTextures = new GLTexture[MAX_INSTANCE_TEXTURES];
+    private ByteBuffer instanceData;
+
+    private final Lazy<GLBuffer> vPos = new Lazy<>(() -> {
+        final GLBuffer out = new GLBuffer(this.getThread());
+
+        out.setName("GLFXStageBatch.vPos");
+        out.allocate(2 * 4 * Float.BYTES, GLBufferUsage.GL_STATIC_DRAW);
+        out.upload(GLTools.wrapFloat(
+                0f, 0f,
+                0f, 1f,
+                1f, 0f,
+                1f, 1f));
+
+        return out;
+    });
+
+    private final Lazy<GLBuffer> vInstances = new Lazy<>(() -> {
+        final GLBuffer out = new GLBuffer(this.getThread());
+
+        out.setName("GLFXStageBatch.vInstances");
+        out.allocate(MAX_INSTANCE_TEXTURES * INSTANCE_STRIDE, GLBufferUsage.GL_STREAM_DRAW);
+        return out;
+    });
+
+    private final Lazy<GLVertexArray> vao = new Lazy<>(() -> {
+        final GLVertexArray out = new GLVertexArray(this.getThread());
+
+        out.setName("GLFXStageBatch.vao");
+        out.attachBuffer(
+                INSTANCED_ATTRIBUTES.getLocation("vPos"), this.vPos.get(),
+                GLVertexAttributeType.GL_FLOAT, GLVertexAttributeSize.VEC2);
+        // one set of instance attributes per stage
+        out.attachBuffer(
+                INSTANCED_ATTRIBUTES.getLocation("iRect"), this.vInstances.get(),
+                GLVertexAttributeType.GL_FLOAT, GLVertexAttributeSize.VEC4,
+                false, INSTANCE_STRIDE, 0L, 1);
+        out.attachBuffer(
+                INSTANCED_ATTRIBUTES.getLocation("iTexInfo"), this.vInstances.get(),
+                GLVertexAttributeType.GL_FLOAT, GLVertexAttributeSize.VEC3,
+                false, INSTANCE_STRIDE, 4L * Float.BYTES, 1);
+
+        return out;
+    });
+
+    /**
+     * Constructs a new GLFXStageBatch on the specified thread.
+     *
+     * @param thread the thread to use.
+     * @param stages the initial stages of the batch.
+     * @since 26.10.18
+     */
+    public GLFXStageBatch(final GLThread thread, final List<GLFXStage> stages) {
+        super(thread);
+
+        stages.forEach(this::add);
+    }
+
+    /**
+     * Constructs a new GLFXStageBatch on the default thread used by GLObject.
+     *
+     * @param stages the initial stages of the batch.
+     * @since 26.10.18
+     */
+    public GLFXStageBatch(final List<GLFXStage> stages) {
+        this(GLThread.getDefaultInstance(), stages);
+    }
+
+    /**
+     * Adds a stage to the end of the batch. Stages are drawn in the order they
+     * were added. The stage is drawn at (0, 0) until a position is set.
+     *
+     * @param stage the stage to add.
+     * @since 26.10.18
+     */
+    public synchronized void add(final GLFXStage stage) {
+        Objects.requireNonNull(stage);
+
+        if (this.find(stage) == null) {
+            this.entries.add(new Entry(stage));
+        }
+    }
+
+    /**
+     * Removes a stage from the batch.
+     *
+     * @param stage the stage to remove.
+     * @since 26.10.18
+     */
+    public synchronized void remove(final GLFXStage stage) {
+        final Entry entry = this.find(stage);
+
+        if (entry != null) {
+            this.entries.remove(entry);
+        }
+    }
+
+    /**
+     * Sets where a stage is drawn in the parent window.
+     *
+     * @param stage the stage.
+     * @param x the x-offset in pixels from the left of the window.
+     * @param y the y-offset in pixels from the top of the window.
+     * @since 26.10.18
+     */
+    public synchronized void setPosition(final GLFXStage stage, final int x, final int y) {
+        final Entry entry = this.find(stage);
+
+        if (entry == null) {
+            throw new IllegalArgumentException("Stage is not part of this batch!");
+        }
+
+        entry.x = x;
+        entry.y = y;
+    }
+
+    /**
+     * Sets the size of the window the stages are drawn to.
+     *
+     * @param newWidth the window width.
+     * @param newHeight the window height.
+     * @since 26.10.18
+     */
+    public synchronized void setWindowSize(final int newWidth, final int newHeight) {
+        if (newWidth > 0 && newHeight > 0) {
+            this.windowWidth = newWidth;
+            this.windowHeight = newHeight;
+            this.needsProjection = true;
+        } else {
+            LOGGER.debug("Window resize rejected; width or height is less than 1.");
+        }
+    }
+
+    private Entry find(final GLFXStage stage) {
+        for (Entry entry : this.entries) {
+            if (entry.stage == stage) {
+                return entry;
+            }
+        }
+
+        return null;
+    }
+
+    private synchronized void drawImpl() {
+        if (this.entries.isEmpty()) {
+            return;
+        } else if (INSTANCING_SUPPORTED.get()) {
+            this.drawInstanced();
+        } else {
+            this.drawEach();
+        }
+    }
+
+    private void drawInstanced() {
+        if (this.instanceData == null) {
+            this.instanceData = MemoryUtil.memAlloc(MAX_INSTANCE_TEXTURES * INSTANCE_STRIDE);
+        }
+
+        if (this.needsProjection) {
+            GLFXProjection.setOrtho(this.projection, this.windowWidth, this.windowHeight);
+            this.needsProjection = false;
+        }
+
+        final GLProgram program = INSTANCED_PROGRAM.get();
+
+        program.use();
+        program.setUniformMatrixF("vProj", this.projection);
+
+        int instances = 0;
+
+        for (Entry entry : this.entries) {
+            if (!entry.stage.isVisible()) {
+                continue;
+            }
+
+            // updating a texture may bind it, so units are only bound right before drawing
+            final GLTexture texture = entry.stage.getAndUpdateTexture();
+
+            if (texture == null) {
+                continue;
+            }
+
+            this.instanceTextures[instances] = texture;
+            this.instanceData
+                    .putFloat(entry.x)
+                    .putFloat(entry.y)
+                    .putFloat(entry.stage.getWidth())
+                    .putFloat(entry.stage.getHeight())
+                    .putFloat(entry.stage.getMaxU())
+                    .putFloat(entry.stage.getMaxV())
+                    .putFloat(instances)
+                    .putFloat(0f);
+
+            if (++instances == MAX_INSTANCE_TEXTURES) {
+                this.drawInstances(instances);
+                instances = 0;
+            }
+        }
+
+        if (instances > 0) {
+            this.drawInstances(instances);
+        }
+    }
+
+    private void drawInstances(final int instances) {
+        for (int i = 0; i < instances; i++) {
+            this.instanceTextures[i].bind(i);
+            this.instanceTextures[i] = null;
+        }
+
+        this.instanceData.flip();
+        this.vInstances.get().upload(this.instanceData);
+        this.instanceData.clear();
+        this.vao.get().drawArraysInstanced(GLDrawMode.GL_TRIANGLE_STRIP, 0, 4, instances);
+    }
+
+    private void drawEach() {
+        final GLProgram program = GLFXStage.PROGRAM.get();
+
+        program.use();
+        program.setUniformI("fxTexture", TEXTURE_UNIT);
+
+        for (Entry entry : this.entries) {
+            if (!entry.stage.isVisible()) {
+                continue;
+            }
+
+            final GLTexture texture = entry.stage.getAndUpdateTexture();
+
+            if (texture == null) {
+                continue;
+            }
+
+            entry.updateTransform(this.windowWidth, this.windowHeight);
+            program.setUniformMatrixF("vProj", entry.transform);
+            texture.bind(TEXTURE_UNIT);
+            entry.stage.getVertexArray().drawArrays(GLDrawMode.GL_TRIANGLE_STRIP, 0, 4);
+        }
+    }
+
+    /**
+     * Creates a new GLTask that draws every visible stage in the batch.
+     *
+     * @return the GLTask.
+     * @since 26.10.18
+     */
+    public GLTask newDrawTask() {
+        return GLTask.create(this::drawImpl);
+    }
+
+    /**
+     * Draws every visible stage in the batch.
+     *
+     * @since 26.10.18
+     */
+    public void draw() {
+        this.newDrawTask().glRun(this.getThread());
+    }
+
+    /**
+     * Deletes the vertex data of the batch. The stages are not deleted.
+     *
+     * @since 26.10.18
+     */
+    public synchronized void delete() {
+        this.vao.ifInitialized(GLVertexArray::delete);
+        this.vPos.ifInitialized(GLBuffer::delete);
+        this.vInstances.ifInitialized(GLBuffer::delete);
+
+        if (this.instanceData != null) {
+            MemoryUtil.memFree(this.instanceData);
+            this.instanceData = null;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters describing the work done by a GLFXStage. The counters are written
+ * by the thread doing the work and may be read from any thread.
+ *
+ * @since 26.10.18
+ */
+public final class GLFXStageStats {
+
+    private volatile long uploadedFrames;
+    private volatile long totalUploadedBytes;
+    private volatile long lastFrameUploadedBytes;
+    private volatile int lastFrameRegions;
+    private volatile long totalCopiedBytes;
+    private volatile long lastFrameCopiedBytes;
+    // captures may be requested from both the JavaFX thread and the OpenGL thread
+    private final AtomicLong capturedFrames = new AtomicLong();
+    private final AtomicLong skippedFrames = new AtomicLong();
+    private final AtomicLong coalescedRepaints = new AtomicLong();
+    // input counters are written by either the window thread or the JavaFX thread, never both
+    private volatile long forwardedInputEvents;
+    private volatile long coalescedInputEvents;
+    private volatile long peakInputQueueDepth;
+    private final AtomicLong droppedInputEvents = new AtomicLong();
+
+    GLFXStageStats() {
+    }
+
+    void recordUpload(final long bytes, final int regions, final long copiedBytes) {
+        this.uploadedFrames = this.uploadedFrames + 1;
+        this.totalUploadedBytes = this.totalUploadedBytes + bytes;
+        this.lastFrameUploadedBytes = bytes;
+        this.lastFrameRegions = regions;
+        this.totalCopiedBytes = this.totalCopiedBytes + copiedBytes;
+        this.lastFrameCopiedBytes = copiedBytes;
+    }
+
+    void recordCapture() {
+        this.capturedFrames.incrementAndGet();
+    }
+
+    void recordSkip() {
+        this.skippedFrames.incrementAndGet();
+    }
+
+    void recordCoalescedRepaint() {
+        this.coalescedRepaints.incrementAndGet();
+    }
+
+    void recordForwardedInput() {
+        this.forwardedInputEvents = this.forwardedInputEvents + 1;
+    }
+
+    void recordCoalescedInput() {
+        this.coalescedInputEvents = this.coalescedInputEvents + 1;
+    }
+
+    void recordInputQueueDepth(final long depth) {
+        if (depth > this.peakInputQueueDepth) {
+            this.peakInputQueueDepth = depth;
+        }
+    }
+
+    long recordDroppedInput() {
+        return this.droppedInputEvents.incrementAndGet();
+    }
+
+    /**
+     * Retrieves the number of frames uploaded to the texture.
+     *
+     * @return the number of uploaded frames.
+     * @since 26.10.18
+     */
+    public long getUploadedFrames() {
+        return this.uploadedFrames;
+    }
+
+    /**
+     * Retrieves the number of bytes uploaded to the texture across all frames.
+     *
+     * @return the total bytes uploaded.
+     * @since 26.10.18
+     */
+    public long getTotalUploadedBytes() {
+        return this.totalUploadedBytes;
+    }
+
+    /**
+     * Retrieves the number of bytes uploaded by the most recent frame.
+     *
+     * @return the bytes uploaded by the last frame.
+     * @since 26.10.18
+     */
+    public long getLastFrameUploadedBytes() {
+        return this.lastFrameUploadedBytes;
+    }
+
+    /**
+     * Retrieves the number of rectangles uploaded by the most recent frame.
+     *
+     * @return the number of dirty regions in the last frame.
+     * @since 26.10.18
+     */
+    public int getLastFrameRegions() {
+        return this.lastFrameRegions;
+    }
+
+    /**
+     * Retrieves the number of bytes copied by the stage between capturing the
+     * scene and updating the texture, across all frames. This excludes the
+     * copy made by JavaFX and any copy made by the driver.
+     *
+     * @return the total bytes copied.
+     * @since 26.10.18
+     */
+    public long getTotalCopiedBytes() {
+        return this.totalCopiedBytes;
+    }
+
+    /**
+     * Retrieves the number of bytes copied by the stage for the most recent
+     * frame.
+     *
+     * @return the bytes copied for the last frame.
+     * @since 26.10.18
+     */
+    public long getLastFrameCopiedBytes() {
+        return this.lastFrameCopiedBytes;
+    }
+
+    /**
+     * Retrieves the number of times the JavaFX scene was captured.
+     *
+     * @return the number of captured frames.
+     * @since 26.10.18
+     */
+    public long getCapturedFrames() {
+        return this.capturedFrames.get();
+    }
+
+    /**
+     * Retrieves the number of pending captures that were postponed by the
+     * capture policy. A postponed capture is counted once, however many frames
+     * pass before the policy allows it.
+     *
+     * @return the number of skipped frames.
+     * @since 26.10.18
+     */
+    public long getSkippedFrames() {
+        return this.skippedFrames.get();
+    }
+
+    /**
+     * Retrieves the number of repaints that arrived while a capture was
+     * already pending and were merged into it.
+     *
+     * @return the number of coalesced repaints.
+     * @since 26.10.18
+     */
+    public long getCoalescedRepaints() {
+        return this.coalescedRepaints.get();
+    }
+
+    /**
+     * Retrieves the number of input events forwarded to the JavaFX scene.
+     *
+     * @return the number of forwarded input events.
+     * @since 26.10.18
+     */
+    public long getForwardedInputEvents() {
+        return this.forwardedInputEvents;
+    }
+
+    /**
+     * Retrieves the number of mouse moves and scrolls that were merged into a
+     * later event before reaching the JavaFX scene.
+     *
+     * @return the number of coalesced input events.
+     * @since 26.10.18
+     */
+    public long getCoalescedInputEvents() {
+        return this.coalescedInputEvents;
+    }
+
+    /**
+     * Retrieves the number of input events dropped because the input queue
+     * was full.
+     *
+     * @return the number of dropped input events.
+     * @since 26.10.18
+     */
+    public long getDroppedInputEvents() {
+        return this.droppedInputEvents.get();
+    }
+
+    /**
+     * Retrieves the largest number of input events that waited in the input
+     * queue at once.
+     *
+     * @return the peak input queue depth.
+     * @since 26.10.18
+     */
+    public long getPeakInputQueueDepth() {
+        return this.peakInputQueueDepth;
+    }
+
+    /**
+     * Resets all counters to 0.
+     *
+     * @since 26.10.18
+     */
+    public void reset() {
+        this.uploadedFrames = 0;
+        this.totalUploadedBytes = 0;
+        this.lastFrameUploadedBytes = 0;
+        this.lastFrameRegions = 0;
+        this.totalCopiedBytes = 0;
+        this.lastFrameCopiedBytes = 0;
+        this.capturedFrames.set(0);
+        this.skippedFrames.set(0);
+        this.coalescedRepaints.set(0);
+        this.forwardedInputEvents = 0;
+        this.coalescedInputEvents = 0;
+        this.peakInputQueueDepth = 0;
+        this.droppedInputEvents.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "GLFXStageStats: [uploadedFrames=" + this.uploadedFrames
+                + " totalUploadedBytes=" + this.totalUploadedBytes
+                + " lastFrameUploadedBytes=" + this.lastFrameUploadedBytes
+                + " lastFrameRegions=" + this.lastFrameRegions
+                + " lastFrameCopiedBytes=" + this.lastFrameCopiedBytes
+                + " capturedFrames=" + this.capturedFrames
+                + " skippedFrames=" + this.skippedFrames
+                + " coalescedRepaints=" + this.coalescedRepaints
+                + " forwardedInputEvents=" + this.forwardedInputEvents
+                + " coalescedInputEvents=" + this.coalescedInputEvents
+                + " droppedInputEvents=" + this.droppedInputEvents + "]";
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import com.longlinkislong.gloop.GLBuffer;
+import com.longlinkislong.gloop.GLBufferAccess;
+import com.longlinkislong.gloop.GLBufferUsage;
+import com.longlinkislong.gloop.GLFutureSync;
+import com.longlinkislong.gloop.GLTexture;
+import com.longlinkislong.gloop.GLTextureFormat;
+import com.longlinkislong.gloop.GLThread;
+import com.longlinkislong.gloop.GLType;
+import com.longlinkislong.gloop.GLWindow;
+import com.runouw.util.Lazy;
+import com.sun.javafx.embed.EmbeddedSceneInterface;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.opengles.GLES;
+
+/**
+ * Streams texture updates through a ring of pixel buffer objects. Each buffer
+ * is fenced after the texture update that reads from it and is only written
+ * again once the fence has passed, so the OpenGL thread never waits on the
+ * driver.
+ *
+ * @since 26.10.18
+ */
+final class GLFXStreamingUploader {
+
+    static final int DEFAULT_RING_SIZE = 3;
+
+    private static final Lazy<Boolean> PBO_SUPPORTED = new Lazy<>(() -> {
+        switch (GLWindow.CLIENT_API) {
+            case OPENGL:
+                final GLCapabilities glCaps = GL.getCapabilities();
+
+                return glCaps.OpenGL30 || (glCaps.GL_ARB_pixel_buffer_object && glCaps.GL_ARB_map_buffer_range);
+            case OPENGLES:
+                return GLES.getCapabilities().GLES30;
+            default:
+                return false;
+        }
+    });
+
+    private final GLThread thread;
+    private final GLBuffer[] buffers;
+    private final int[] capacities;
+    private final GLFutureSync[] fences;
+    private int next = 0;
+    // the size of the frame mapped by the last capture
+    private int capturedWidth;
+    private int capturedHeight;
+
+    GLFXStreamingUploader(final GLThread thread, final int ringSize) {
+        if (ringSize < 2) {
+            throw new IllegalArgumentException("Ring size [" + ringSize + "] must be at least 2!");
+        }
+
+        this.thread = thread;
+        this.buffers = new GLBuffer[ringSize];
+        this.capacities = new int[ringSize];
+        this.fences = new GLFutureSync[ringSize];
+    }
+
+    /**
+     * Checks if the current OpenGL context can stream through pixel buffer
+     * objects. This must be called on the OpenGL thread.
+     *
+     * @return true if streaming is supported.
+     */
+    static boolean isSupported() {
+        return PBO_SUPPORTED.get() && GLFutureSync.isSupported();
+    }
+
+    /**
+     * Copies a rectangle of the frame into the next pixel buffer object and
+     * updates the texture from it. This must be called on the OpenGL thread.
+     *
+     * The copy into the mapped buffer is made on the OpenGL thread. Moving it
+     * to the capture worker would also mean moving the dirty region diff,
+     * which picks the rectangle and runs on the OpenGL thread, and the hit
+     * mask and frame recorders, which read the same frame. Neither is done
+     * here. Callers that cannot afford the copy should use capture instead,
+     * which has the scene write straight into the buffer.
+     *
+     * @param dst the texture to update.
+     * @param dstX the x-offset of the frame within the texture.
+     * @param dstY the y-offset of the frame within the texture.
+     * @param frame the frame pixels.
+     * @param frameWidth the width of the frame.
+     * @param x the x-offset of the rectangle.
+     * @param y the y-offset of the rectangle.
+     * @param w the width of the rectangle.
+     * @param h the height of the rectangle.
+     * @return false if the next buffer is still in use by the GPU; nothing is
+     * uploaded in that case.
+     */
+    boolean upload(
+            final GLTexture dst, final int dstX, final int dstY,
+            final ByteBuffer frame, final int frameWidth,
+            final int x, final int y, final int w, final int h) {
+
+        final ByteBuffer mapped = this.mapNext(w * h * Integer.BYTES);
+
+        if (mapped == null) {
+            return false;
+        }
+
+        GLFXDirtyRegionTracker.copyRegion(frame, frameWidth, x, y, w, h, mapped, 0);
+        this.submit(dst, dstX + x, dstY + y, w, h);
+        return true;
+    }
+
+    /**
+     * Has the scene write its pixels directly into the next pixel buffer
+     * object. The only copy made on the CPU is the one made by JavaFX. A
+     * successful capture must be followed by submitCapture before the
+     * uploader is used again. This must be called on the OpenGL thread.
+     *
+     * @param scene the scene to capture.
+     * @param w the width of the scene.
+     * @param h the height of the scene.
+     * @return false if the next buffer is still in use by the GPU or the scene
+     * could not provide its pixels; nothing is left to submit in that case.
+     */
+    boolean capture(final EmbeddedSceneInterface scene, final int w, final int h) {
+        final ByteBuffer mapped = this.mapNext(w * h * Integer.BYTES);
+
+        if (mapped == null) {
+            return false;
+        }
+
+        if (!scene.getPixels(mapped.order(ByteOrder.nativeOrder()).asIntBuffer(), w, h)) {
+            // the buffer was mapped with invalidation, so its contents are undefined
+            this.buffers[this.next].unmap();
+            return false;
+        }
+
+        this.capturedWidth = w;
+        this.capturedHeight = h;
+        return true;
+    }
+
+    /**
+     * Updates a texture from the frame written by the last successful
+     * capture. This must be called on the OpenGL thread.
+     *
+     * @param dst the texture to update.
+     * @param dstX the x-offset of the frame within the texture.
+     * @param dstY the y-offset of the frame within the texture.
+     */
+    void submitCapture(final GLTexture dst, final int dstX, final int dstY) {
+        this.submit(dst, dstX, dstY, this.capturedWidth, this.capturedHeight);
+    }
+
+    private ByteBuffer mapNext(final int size) {
+        final int slot = this.next;
+
+        if (this.fences[slot] != null) {
+            if (!this.fences[slot].poll()) {
+                // the GPU is still reading from this buffer
+                return null;
+            }
+
+            this.fences[slot] = null;
+        }
+
+        if (this.buffers[slot] == null || this.capacities[slot] < size) {
+            if (this.buffers[slot] != null) {
+                this.buffers[slot].delete();
+            }
+
+            this.buffers[slot] = new GLBuffer(this.thread);
+            this.buffers[slot].setName("GLFXStage.pbo[" + slot + "]");
+            this.buffers[slot].allocate(size, GLBufferUsage.GL_STREAM_DRAW);
+            this.capacities[slot] = size;
+        }
+
+        return this.buffers[slot].map(0, size, GLBufferAccess.GL_MAP_WRITE, GLBufferAccess.GL_MAP_INVALIDATE_BUFFER);
+    }
+
+    private void submit(final GLTexture dst, final int x, final int y, final int w, final int h) {
+        final int slot = this.next;
+        final GLBuffer pbo = this.buffers[slot];
+
+        pbo.unmap();
+        dst.updateImage(0, x, y, w, h, GLTextureFormat.GL_BGRA, GLType.GL_UNSIGNED_BYTE, pbo);
+
+        this.fences[slot] = GLFutureSync.fence(this.thread);
+        this.next = (slot + 1) % this.buffers.length;
+    }
+
+    /**
+     * Deletes all pixel buffer objects.
+     */
+    void delete() {
+        for (int i = 0; i < this.buffers.length; i++) {
+            if (this.buffers[i] != null) {
+                this.buffers[i].delete();
+                this.buffers[i] = null;
+                this.capacities[i] = 0;
+            }
+
+            this.fences[i] = null;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Encodes captured frames into S3TC block-compressed textures. Opaque frames
+ * are encoded as DXT1 (8 bytes per 4x4 block) and frames with transparency as
+ * DXT5 (16 bytes per block). The encoder fits each block's endpoints to the
+ * bounding box of its colors; it favors speed over quality since the result
+ * only replaces frames that have stopped changing.
+ *
+ * @since 26.10.18
+ */
+final class GLFXTextureCompressor {
+
+    static final int DXT1_BLOCK_SIZE = 8;
+    static final int DXT5_BLOCK_SIZE = 16;
+
+    private GLFXTextureCompressor() {
+    }
+
+    /**
+     * Checks if every pixel of a frame is fully opaque.
+     *
+     * @param frame the frame pixels; BGRA, tightly packed.
+     * @param width the frame width.
+     * @param height the frame height.
+     * @return true if the frame can be encoded as DXT1.
+     */
+    static boolean isOpaque(final ByteBuffer frame, final int width, final int height) {
+        final int size = width * height * Integer.BYTES;
+
+        for (int i = Integer.BYTES - 1; i < size; i += Integer.BYTES) {
+            if (frame.get(i) != (byte) 0xFF) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Retrieves the number of bytes needed to hold a compressed image.
+     *
+     * @param width the image width.
+     * @param height the image height.
+     * @param alpha true for DXT5, false for DXT1.
+     * @return the compressed size in bytes.
+     */
+    static int compressedSize(final int width, final int height, final boolean alpha) {
+        return ((width + 3) / 4) * ((height + 3) / 4) * (alpha ? DXT5_BLOCK_SIZE : DXT1_BLOCK_SIZE);
+    }
+
+    /**
+     * Compresses a frame into an image that may be larger than the frame.
+     * Pixels outside the frame are transparent black.
+     *
+     * @param frame the frame pixels; BGRA, tightly packed.
+     * @param frameWidth the frame width.
+     * @param frameHeight the frame height.
+     * @param width the width of the compressed image.
+     * @param height the height of the compressed image.
+     * @param alpha true to encode DXT5, false to encode DXT1.
+     * @return the compressed blocks. Must be released with MemoryUtil.memFree.
+     */
+    static ByteBuffer compress(
+            final ByteBuffer frame, final int frameWidth, final int frameHeight,
+            final int width, final int height, final boolean alpha) {
+
+        final ByteBuffer out = MemoryUtil.memAlloc(compressedSize(width, height, alpha)).order(ByteOrder.LITTLE_ENDIAN);
+        final int[] block = new int[16];
+
+        for (int by = 0; by < height; by += 4) {
+            for (int bx = 0; bx < width; bx += 4) {
+                readBlock(frame, frameWidth, frameHeight, bx, by, block);
+
+                if (alpha) {
+                    encodeAlpha(block, out);
+                }
+
+                encodeColor(block, out);
+            }
+        }
+
+        out.flip();
+        return out;
+    }
+
+    // packs the block as 0xAARRGGBB per pixel
+    private static void readBlock(
+            final ByteBuffer frame, final int frameWidth, final int frameHeight,
+            final int bx, final int by, final int[] block) {
+
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                final int px = bx + x;
+                final int py = by + y;
+
+                if (px < frameWidth && py < frameHeight) {
+                    final int offset = (py * frameWidth + px) * Integer.BYTES;
+                    final int b = frame.get(offset) & 0xFF;
+                    final int g = frame.get(offset + 1) & 0xFF;
+                    final int r = frame.get(offset + 2) & 0xFF;
+                    final int a = frame.get(offset + 3) & 0xFF;
+
+                    block[y * 4 + x] = (a << 24) | (r << 16) | (g << 8) | b;
+                } else {
+                    block[y * 4 + x] = 0;
+                }
+            }
+        }
+    }
+
+    private static void encodeAlpha(final int[] block, final ByteBuffer out) {
+        int min = 0xFF;
+        int max = 0;
+
+        for (int pixel : block) {
+            final int a = pixel >>> 24;
+
+            min = Math.min(min, a);
+            max = Math.max(max, a);
+        }
+
+        out.put((byte) max).put((byte) min);
+
+        long indices = 0L;
+
+        if (max > min) {
+            // 8-level mode: code 0 is max, 1 is min and 2-7 step from max to min
+            for (int i = 0; i < 16; i++) {
+                final int a = block[i] >>> 24;
+                final int step = Math.round((max - a) * 7f / (max - min));
+                final long code = step == 0 ? 0 : step == 7 ? 1 : step + 1;
+
+                indices |= code << (3 * i);
+            }
+        }
+
+        for (int i = 0; i < 6; i++) {
+            out.put((byte) (indices >>> (8 * i)));
+        }
+    }
+
+    private static void encodeColor(final int[] block, final ByteBuffer out) {
+        int minR = 0xFF, minG = 0xFF, minB = 0xFF;
+        int maxR = 0, maxG = 0, maxB = 0;
+
+        for (int pixel : block) {
+            final int r = (pixel >>> 16) & 0xFF;
+            final int g = (pixel >>> 8) & 0xFF;
+            final int b = pixel & 0xFF;
+
+            minR = Math.min(minR, r);
+            minG = Math.min(minG, g);
+            minB = Math.min(minB, b);
+            maxR = Math.max(maxR, r);
+            maxG = Math.max(maxG, g);
+            maxB = Math.max(maxB, b);
+        }
+
+        int c0 = to565(maxR, maxG, maxB);
+        int c1 = to565(minR, minG, minB);
+
+        // c0 > c1 selects the 4-color mode in DXT1
+        if (c0 < c1) {
+            final int swap = c0;
+
+            c0 = c1;
+            c1 = swap;
+        }
+
+        out.putShort((short) c0).putShort((short) c1);
+
+        int indices = 0;
+
+        if (c0 != c1) {
+            final int[] palette = {
+                expand565(c0),
+                expand565(c1),
+                mix(expand565(c0), expand565(c1), 2, 1),
+                mix(expand565(c0), expand565(c1), 1, 2)
+            };
+
+            for (int i = 0; i < 16; i++) {
+                indices |= nearest(block[i], palette) << (2 * i);
+            }
+        }
+
+        out.putInt(indices);
+    }
+
+    private static int to565(final int r, final int g, final int b) {
+        return ((r * 31 + 127) / 255) << 11 | ((g * 63 + 127) / 255) << 5 | ((b * 31 + 127) / 255);
+    }
+
+    private static int expand565(final int c) {
+        final int r = (c >>> 11) & 0x1F;
+        final int g = (c >>> 5) & 0x3F;
+        final int b = c & 0x1F;
+
+        return (r << 3 | r >>> 2) << 16 | (g << 2 | g >>> 4) << 8 | (b << 3 | b >>> 2);
+    }
+
+    private static int mix(final int c0, final int c1, final int w0, final int w1) {
+        final int r = (((c0 >>> 16) & 0xFF) * w0 + ((c1 >>> 16) & 0xFF) * w1) / 3;
+        final int g = (((c0 >>> 8) & 0xFF) * w0 + ((c1 >>> 8) & 0xFF) * w1) / 3;
+        final int b = ((c0 & 0xFF) * w0 + (c1 & 0xFF) * w1) / 3;
+
+        return r << 16 | g << 8 | b;
+    }
+
+    private static int nearest(final int pixel, final int[] palette) {
+        int best = 0;
+        int bestDistance = Integer.MAX_VALUE;
+
+        for (int i = 0; i < palette.length; i++) {
+            final int dr = ((pixel >>> 16) & 0xFF) - ((palette[i] >>> 16) & 0xFF);
+            final int dg = ((pixel >>> 8) & 0xFF) - ((palette[i] >>> 8) & 0xFF);
+            final int db = (pixel & 0xFF) - (palette[i] & 0xFF);
+            final int distance = dr * dr + dg * dg + db * db;
+
+            if (distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+
+        return best;
+    }
+}
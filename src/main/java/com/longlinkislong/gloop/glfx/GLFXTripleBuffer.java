@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * A lock-free triple buffer of captured frames shared by one producer and one
+ * consumer. The producer writes into the back frame and publishes it; the
+ * consumer acquires the most recently published frame. Neither side ever
+ * waits on the other and a frame is never written while it is being read.
+ *
+ * @since 26.10.18
+ */
+final class GLFXTripleBuffer {
+
+    /**
+     * A captured frame. The pixels are 4 bytes per pixel and tightly packed.
+     */
+    static final class Frame {
+
+        ByteBuffer pixels;
+        // a view of the pixels for capturing; created with the pixels so captures do not allocate
+        IntBuffer ints;
+        int width;
+        int height;
+
+        /**
+         * Ensures the frame can hold the requested size and sets the frame
+         * dimensions.
+         *
+         * @param width the frame width.
+         * @param height the frame height.
+         */
+        void resize(final int width, final int height) {
+            final int neededSize = width * height * Integer.BYTES;
+
+            if (this.pixels == null || this.pixels.capacity() < neededSize) {
+                if (this.pixels != null) {
+                    MemoryUtil.memFree(this.pixels);
+                }
+
+                this.pixels = MemoryUtil.memAlloc(neededSize);
+                this.ints = this.pixels.asIntBuffer();
+            }
+
+            this.pixels.clear().limit(neededSize);
+            this.ints.clear();
+            this.width = width;
+            this.height = height;
+        }
+
+        void free() {
+            if (this.pixels != null) {
+                MemoryUtil.memFree(this.pixels);
+                this.pixels = null;
+                this.ints = null;
+            }
+        }
+    }
+
+    private static final int INDEX_MASK = 0x3;
+    private static final int FRESH = 0x4;
+
+    private final Frame[] frames = {new Frame(), new Frame(), new Frame()};
+    // index of the middle frame; FRESH is set if it has not been acquired yet
+    private final AtomicInteger middle = new AtomicInteger(0);
+    private int back = 1;
+    private int front = 2;
+
+    /**
+     * Retrieves the frame the producer may write to.
+     *
+     * @return the back frame.
+     */
+    Frame getBackFrame() {
+        return this.frames[this.back];
+    }
+
+    /**
+     * Publishes the back frame as the newest frame. Called by the producer.
+     */
+    void publish() {
+        this.back = this.middle.getAndSet(this.back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Acquires the newest published frame. Called by the consumer. The frame
+     * remains valid until the next call to acquire.
+     *
+     * @return the newest frame or null if nothing was published since the last
+     * call.
+     */
+    Frame acquire() {
+        if ((this.middle.get() & FRESH) == 0) {
+            return null;
+        }
+
+        this.front = this.middle.getAndSet(this.front) & INDEX_MASK;
+        return this.frames[this.front];
+    }
+
+    /**
+     * Releases all frames. Neither the producer nor the consumer may be
+     * running.
+     */
+    void free() {
+        for (Frame frame : this.frames) {
+            frame.free();
+        }
+
+        this.middle.set(this.middle.get() & INDEX_MASK);
+    }
+}
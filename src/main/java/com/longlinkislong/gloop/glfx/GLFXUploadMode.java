@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+/**
+ * The strategies a GLFXStage can use to move captured pixels into its
+ * texture.
+ *
+ * @since 26.10.18
+ */
+public enum GLFXUploadMode {
+    /**
+     * Pixels are uploaded directly from client memory. The OpenGL thread waits
+     * while the driver copies the pixels.
+     *
+     * @since 26.10.18
+     */
+    DIRECT,
+    /**
+     * Pixels are written into a ring of pixel buffer objects and the texture
+     * is updated from the buffer. Each buffer is fenced and only reused once
+     * the GPU is done reading from it. The changed pixels are still copied
+     * into the mapped buffer on the OpenGL thread; only the wait on the driver
+     * is avoided. Falls back to DIRECT if pixel buffer objects or sync objects
+     * are not supported.
+     *
+     * @since 26.10.18
+     */
+    STREAMING,
+    /**
+     * The scene writes its pixels directly into a mapped pixel buffer object
+     * and the texture is updated from the buffer, so no copy is made on the
+     * CPU other than the one made by JavaFX. Every frame is uploaded in full
+     * since there is no copy to compare against. Only applies to synchronous
+     * captures; asynchronous captures and contexts without pixel buffer
+     * objects use STREAMING instead.
+     *
+     * @since 26.10.18
+     */
+    ZERO_COPY
+}
@@ -3,12 +3,70 @@
 in vec2 uvs;
 
 uniform sampler2D fxTexture;
+uniform vec2 fxTextureSize;
+// the texture coordinates of the far corner of the content; texels past it are headroom
+uniform vec2 fxMaxUV;
 uniform vec4 tMask;
 uniform float tThreshold;
 
 out vec4 fColor;
 
+#ifdef BICUBIC
+vec4 cubic(float v) {
+    vec4 n = vec4(1.0, 2.0, 3.0, 4.0) - v;
+    vec4 s = n * n * n;
+    float x = s.x;
+    float y = s.y - 4.0 * s.x;
+    float z = s.z - 4.0 * s.y + 6.0 * s.x;
+    float w = 6.0 - x - y - z;
+
+    return vec4(x, y, z, w) * (1.0 / 6.0);
+}
+
+// four bilinear samples weighted into a bicubic sample
+vec4 sampleFX(vec2 texCoords) {
+    vec2 invTexSize = 1.0 / fxTextureSize;
+
+    texCoords = texCoords * fxTextureSize - 0.5;
+
+    vec2 fxy = fract(texCoords);
+
+    texCoords -= fxy;
+
+    vec4 xcubic = cubic(fxy.x);
+    vec4 ycubic = cubic(fxy.y);
+    vec4 c = texCoords.xxyy + vec2(-0.5, +1.5).xyxy;
+    vec4 s = vec4(xcubic.xz + xcubic.yw, ycubic.xz + ycubic.yw);
+    vec4 offset = (c + vec4(xcubic.yw, ycubic.yw) / s) * invTexSize.xxyy;
+    vec2 halfTexel = 0.5 * invTexSize;
+
+    // keep each bilinear tap inside the content so the edges never blend in headroom texels
+    offset = clamp(offset, halfTexel.xxyy, (fxMaxUV - halfTexel).xxyy);
+
+    vec4 sample0 = texture(fxTexture, offset.xz);
+    vec4 sample1 = texture(fxTexture, offset.yz);
+    vec4 sample2 = texture(fxTexture, offset.xw);
+    vec4 sample3 = texture(fxTexture, offset.yw);
+
+    float sx = s.x / (s.x + s.y);
+    float sy = s.z / (s.z + s.w);
+
+    return mix(mix(sample3, sample2, sx), mix(sample1, sample0, sx), sy);
+}
+#else
+vec4 sampleFX(vec2 texCoords) {
+    return texture(fxTexture, texCoords);
+}
+#endif
+
 void main() {
-    fColor = texture(fxTexture, uvs);    
+    fColor = sampleFX(uvs);
+
+#ifdef STRAIGHT_ALPHA
+    // JavaFX renders premultiplied colors
+    if (fColor.a > 0.0) {
+        fColor.rgb /= fColor.a;
+    }
+#endif
     //fColor = vec4(mix(vec3(1.0, 0.0, 0.0), fColor.rgb, fColor.a), 1.0); // DEBUG
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+#version 130
+
+in vec2 uvs;
+flat in int unit;
+
+uniform sampler2D fxTextures[16];
+
+out vec4 fColor;
+
+void main() {
+    // sampler arrays may only be indexed by constant expressions
+    switch (unit) {
+        case 0: fColor = texture(fxTextures[0], uvs); break;
+        case 1: fColor = texture(fxTextures[1], uvs); break;
+        case 2: fColor = texture(fxTextures[2], uvs); break;
+        case 3: fColor = texture(fxTextures[3], uvs); break;
+        case 4: fColor = texture(fxTextures[4], uvs); break;
+        case 5: fColor = texture(fxTextures[5], uvs); break;
+        case 6: fColor = texture(fxTextures[6], uvs); break;
+        case 7: fColor = texture(fxTextures[7], uvs); break;
+        case 8: fColor = texture(fxTextures[8], uvs); break;
+        case 9: fColor = texture(fxTextures[9], uvs); break;
+        case 10: fColor = texture(fxTextures[10], uvs); break;
+        case 11: fColor = texture(fxTextures[11], uvs); break;
+        case 12: fColor = texture(fxTextures[12], uvs); break;
+        case 13: fColor = texture(fxTextures[13], uvs); break;
+        case 14: fColor = texture(fxTextures[14], uvs); break;
+        default: fColor = texture(fxTextures[15], uvs); break;
+    }
+}
\ No newline at end of file
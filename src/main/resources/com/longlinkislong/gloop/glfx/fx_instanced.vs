@@ -0,0 +1,18 @@
+#version 130
+
+in vec2 vPos;
+// x, y, width and height of the stage in window pixels
+in vec4 iRect;
+// u and v of the bottom right corner of the stage and its texture unit
+in vec3 iTexInfo;
+
+uniform mat4 vProj;
+
+out vec2 uvs;
+flat out int unit;
+
+void main() {
+    gl_Position = vProj * vec4(iRect.xy + vPos * iRect.zw, 0.0, 1.0);
+    uvs = vPos * iTexInfo.xy;
+    unit = int(iTexInfo.z);
+}
\ No newline at end of file
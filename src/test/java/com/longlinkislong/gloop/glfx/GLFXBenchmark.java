@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import com.longlinkislong.gloop.GLTask;
+import com.longlinkislong.gloop.GLThread;
+import com.longlinkislong.gloop.GLWindow;
+import com.sun.javafx.application.PlatformImpl;
+import java.util.function.Consumer;
+
+/**
+ * Shared setup for the GLFXStage benchmarks. The benchmarks need a display
+ * and a JavaFX toolkit, so they are not run as part of the regular tests.
+ */
+final class GLFXBenchmark {
+
+    static final int WIDTH = 1280;
+    static final int HEIGHT = 720;
+    static final int WARMUP_FRAMES = 120;
+    static final int FRAMES = 600;
+
+    private GLFXBenchmark() {
+    }
+
+    /**
+     * Starts JavaFX, opens a window and runs the benchmark in it. The window
+     * is closed once the benchmark returns.
+     *
+     * @param name the window title.
+     * @param benchmark the benchmark.
+     */
+    static void run(final String name, final Consumer<GLWindow> benchmark) {
+        PlatformImpl.startup(() -> {
+        });
+
+        final GLWindow window = new GLWindow(WIDTH, HEIGHT, name);
+
+        window.setVisible(true);
+
+        try {
+            benchmark.accept(window);
+        } finally {
+            window.close();
+        }
+    }
+
+    /**
+     * Runs a frame task followed by a window update for WARMUP_FRAMES frames,
+     * then times it over FRAMES frames.
+     *
+     * @param window the window.
+     * @param frame the task that draws one frame.
+     * @param warmedUp a task run on the OpenGL thread after the warmup; may
+     * be null.
+     * @return the average time per frame in milliseconds.
+     */
+    static double measure(final GLWindow window, final GLTask frame, final GLTask warmedUp) {
+        final GLThread thread = window.getGLThread();
+        final GLTask update = window.new UpdateTask();
+
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            frame.glRun(thread);
+            update.glRun(thread);
+        }
+
+        if (warmedUp != null) {
+            warmedUp.glRun(thread);
+        }
+
+        final long start = System.nanoTime();
+
+        for (int i = 0; i < FRAMES; i++) {
+            frame.glRun(thread);
+            update.glRun(thread);
+        }
+
+        return (System.nanoTime() - start) / 1e6 / FRAMES;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import com.longlinkislong.gloop.GLMat4D;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Checks that the parts of a steady-state frame that do not need an OpenGL
+ * context allocate nothing on the heap. Drawing and uploading need a live
+ * context and are not covered.
+ */
+public class TestGLFXAllocation {
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final int WARMUP = 20000;
+    private static final int ITERATIONS = 10000;
+    private static final int WIDTH = 256;
+    private static final int HEIGHT = 128;
+
+    static void assertNoAllocation(final String name, final Runnable frame) {
+        for (int i = 0; i < WARMUP; i++) {
+            frame.run();
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        final long before = THREADS.getThreadAllocatedBytes(threadId);
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            frame.run();
+        }
+
+        final long allocated = THREADS.getThreadAllocatedBytes(threadId) - before;
+
+        // less than a byte per frame rules out any allocation in the loop
+        assertTrue(name + " allocated " + allocated + " bytes in " + ITERATIONS + " frames", allocated < ITERATIONS);
+    }
+
+    @Test
+    public void testProjectionMatchesOrtho() {
+        final GLMat4D projection = GLFXProjection.newOrtho();
+        final GLMat4D expected = GLMat4D.ortho(0.0, 1280.0 / 320.0, 720.0 / 240.0, 0.0, -1.0, 1.0);
+
+        GLFXProjection.setOrtho(projection, 1280.0 / 320.0, 720.0 / 240.0);
+
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                assertEquals(expected.get(i, j), projection.get(i, j), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testProjectionUpdate() {
+        final GLMat4D projection = GLFXProjection.newOrtho();
+        final int[] size = {1};
+
+        assertNoAllocation("Projection update", () -> {
+            size[0] = size[0] % 1000 + 1;
+            GLFXProjection.setOrtho(projection, 1280.0 / size[0], 720.0 / size[0]);
+        });
+    }
+
+    @Test
+    public void testUnchangedFrame() {
+        final GLFXDirtyRegionTracker tracker = new GLFXDirtyRegionTracker();
+        final ByteBuffer frame = ByteBuffer.allocateDirect(WIDTH * HEIGHT * Integer.BYTES);
+
+        try {
+            tracker.update(frame, WIDTH, HEIGHT);
+
+            assertNoAllocation("Unchanged frame", () -> tracker.update(frame, WIDTH, HEIGHT));
+        } finally {
+            tracker.free();
+        }
+    }
+
+    @Test
+    public void testChangedRegionCopy() {
+        final GLFXDirtyRegionTracker tracker = new GLFXDirtyRegionTracker();
+        final ByteBuffer frame = ByteBuffer.allocateDirect(WIDTH * HEIGHT * Integer.BYTES);
+        final ByteBuffer upload = ByteBuffer.allocateDirect(WIDTH * HEIGHT * Integer.BYTES);
+        final int[] counter = {0};
+
+        try {
+            tracker.update(frame, WIDTH, HEIGHT);
+
+            // mirrors the direct upload path: diff the frame, then pack the dirty regions
+            assertNoAllocation("Changed region copy", () -> {
+                frame.putInt((70 + 70 * WIDTH) * Integer.BYTES, counter[0]++);
+
+                final int regions = tracker.update(frame, WIDTH, HEIGHT);
+                int offset = 0;
+
+                for (int i = 0; i < regions; i++) {
+                    final int w = tracker.getRegionWidth(i);
+                    final int h = tracker.getRegionHeight(i);
+
+                    GLFXDirtyRegionTracker.copyRegion(frame, WIDTH, tracker.getRegionX(i), tracker.getRegionY(i), w, h, upload, offset);
+                    offset += w * h * Integer.BYTES;
+                }
+            });
+        } finally {
+            tracker.free();
+        }
+    }
+
+    @Test
+    public void testTripleBuffer() {
+        final GLFXTripleBuffer buffer = new GLFXTripleBuffer();
+
+        try {
+            assertNoAllocation("Triple buffer", () -> {
+                buffer.getBackFrame().resize(WIDTH, HEIGHT);
+                buffer.publish();
+                assertNotNull(buffer.acquire());
+            });
+        } finally {
+            buffer.free();
+        }
+    }
+}
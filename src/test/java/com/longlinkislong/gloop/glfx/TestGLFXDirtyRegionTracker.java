@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import java.nio.ByteBuffer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Checks the regions reported by GLFXDirtyRegionTracker.
+ */
+public class TestGLFXDirtyRegionTracker {
+
+    private static final int WIDTH = 256;
+    private static final int HEIGHT = 128;
+    private static final int TILE = 64;
+
+    private final GLFXDirtyRegionTracker tracker = new GLFXDirtyRegionTracker(TILE);
+
+    @After
+    public void free() {
+        this.tracker.free();
+    }
+
+    private static ByteBuffer newFrame() {
+        return ByteBuffer.allocate(WIDTH * HEIGHT * Integer.BYTES);
+    }
+
+    private static void setPixel(final ByteBuffer frame, final int x, final int y, final int value) {
+        frame.putInt((y * WIDTH + x) * Integer.BYTES, value);
+    }
+
+    private void assertRegion(final int region, final int x, final int y, final int w, final int h) {
+        assertEquals(x, this.tracker.getRegionX(region));
+        assertEquals(y, this.tracker.getRegionY(region));
+        assertEquals(w, this.tracker.getRegionWidth(region));
+        assertEquals(h, this.tracker.getRegionHeight(region));
+    }
+
+    @Test
+    public void testFirstFrameIsFullyDirty() {
+        assertNull(this.tracker.getPreviousFrame());
+        assertEquals(1, this.tracker.update(newFrame(), WIDTH, HEIGHT));
+        this.assertRegion(0, 0, 0, WIDTH, HEIGHT);
+    }
+
+    @Test
+    public void testUnchangedFrame() {
+        final ByteBuffer frame = newFrame();
+
+        this.tracker.update(frame, WIDTH, HEIGHT);
+
+        assertEquals(0, this.tracker.update(frame, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void testSingleTile() {
+        final ByteBuffer frame = newFrame();
+
+        this.tracker.update(frame, WIDTH, HEIGHT);
+        setPixel(frame, 70, 10, 0xFFFFFFFF);
+
+        assertEquals(1, this.tracker.update(frame, WIDTH, HEIGHT));
+        this.assertRegion(0, 64, 0, TILE, TILE);
+        assertEquals(0, this.tracker.update(frame, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void testSpansMergeAcrossRows() {
+        final ByteBuffer frame = newFrame();
+
+        this.tracker.update(frame, WIDTH, HEIGHT);
+        setPixel(frame, 0, 0, 0xFFFFFFFF);
+        setPixel(frame, 0, 100, 0xFFFFFFFF);
+        setPixel(frame, 200, 0, 0xFFFFFFFF);
+
+        assertEquals(2, this.tracker.update(frame, WIDTH, HEIGHT));
+        this.assertRegion(0, 0, 0, TILE, HEIGHT);
+        this.assertRegion(1, 192, 0, TILE, TILE);
+    }
+
+    @Test
+    public void testAdjacentTilesFormOneSpan() {
+        final ByteBuffer frame = newFrame();
+
+        this.tracker.update(frame, WIDTH, HEIGHT);
+        setPixel(frame, 63, 0, 0xFFFFFFFF);
+        setPixel(frame, 64, 0, 0xFFFFFFFF);
+
+        assertEquals(1, this.tracker.update(frame, WIDTH, HEIGHT));
+        this.assertRegion(0, 0, 0, 2 * TILE, TILE);
+    }
+
+    @Test
+    public void testMostlyDirtyFrameCollapses() {
+        final ByteBuffer frame = newFrame();
+
+        this.tracker.update(frame, WIDTH, HEIGHT);
+        // 5 of the 8 tiles change; one bounding box is cheaper than 4 regions
+        setPixel(frame, 0, 0, 1);
+        setPixel(frame, 128, 0, 1);
+        setPixel(frame, 64, 64, 1);
+        setPixel(frame, 192, 64, 1);
+        setPixel(frame, 255, 0, 1);
+
+        assertEquals(1, this.tracker.update(frame, WIDTH, HEIGHT));
+        this.assertRegion(0, 0, 0, WIDTH, HEIGHT);
+    }
+
+    @Test
+    public void testInvalidate() {
+        final ByteBuffer frame = newFrame();
+
+        this.tracker.update(frame, WIDTH, HEIGHT);
+        this.tracker.invalidate();
+
+        assertNull(this.tracker.getPreviousFrame());
+        assertEquals(1, this.tracker.update(frame, WIDTH, HEIGHT));
+        this.assertRegion(0, 0, 0, WIDTH, HEIGHT);
+    }
+
+    @Test
+    public void testResize() {
+        this.tracker.update(newFrame(), WIDTH, HEIGHT);
+
+        assertEquals(1, this.tracker.update(ByteBuffer.allocate(64 * 64 * Integer.BYTES), 64, 64));
+        this.assertRegion(0, 0, 0, 64, 64);
+    }
+
+    @Test
+    public void testMarkAllDirty() {
+        final ByteBuffer frame = newFrame();
+
+        this.tracker.update(frame, WIDTH, HEIGHT);
+        this.tracker.markAllDirty(WIDTH, HEIGHT);
+
+        assertEquals(1, this.tracker.getRegionCount());
+        this.assertRegion(0, 0, 0, WIDTH, HEIGHT);
+        assertEquals(1, this.tracker.update(frame, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void testPreviousFrameIsCopied() {
+        final ByteBuffer frame = newFrame();
+
+        setPixel(frame, 5, 5, 42);
+        this.tracker.update(frame, WIDTH, HEIGHT);
+        setPixel(frame, 5, 5, 0);
+
+        assertEquals(42, this.tracker.getPreviousFrame().getInt((5 * WIDTH + 5) * Integer.BYTES));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import com.longlinkislong.gloop.GLKeyModifier;
+import com.sun.glass.events.KeyEvent;
+import com.sun.javafx.embed.AbstractEvents;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.EnumSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Checks that every GLFW key has a JavaFX translation.
+ */
+public class TestGLFXKeyMap {
+
+    @Test
+    public void testEveryGLFWKeyIsMapped() throws IllegalAccessException {
+        int keys = 0;
+
+        for (Field field : GLFW.class.getFields()) {
+            final String name = field.getName();
+
+            if (!name.startsWith("GLFW_KEY_")
+                    || !Modifier.isStatic(field.getModifiers())
+                    || field.getType() != int.class
+                    || name.equals("GLFW_KEY_LAST")
+                    || name.equals("GLFW_KEY_UNKNOWN")) {
+
+                continue;
+            }
+
+            assertTrue(name + " is not mapped", GLFXKeyMap.toJavaFXKey(field.getInt(null)) != GLFXKeyMap.UNMAPPED);
+            keys++;
+        }
+
+        assertTrue("No GLFW keys were found", keys > 0);
+    }
+
+    @Test
+    public void testUnknownKeys() {
+        assertEquals(GLFXKeyMap.UNMAPPED, GLFXKeyMap.toJavaFXKey(GLFW.GLFW_KEY_UNKNOWN));
+        assertEquals(GLFXKeyMap.UNMAPPED, GLFXKeyMap.toJavaFXKey(GLFW.GLFW_KEY_LAST + 1));
+    }
+
+    @Test
+    public void testKeys() {
+        assertEquals(KeyEvent.VK_A, GLFXKeyMap.toJavaFXKey(GLFW.GLFW_KEY_A));
+        assertEquals(KeyEvent.VK_Z, GLFXKeyMap.toJavaFXKey(GLFW.GLFW_KEY_Z));
+        assertEquals(KeyEvent.VK_9, GLFXKeyMap.toJavaFXKey(GLFW.GLFW_KEY_9));
+        assertEquals(KeyEvent.VK_F12, GLFXKeyMap.toJavaFXKey(GLFW.GLFW_KEY_F12));
+        assertEquals(KeyEvent.VK_F13, GLFXKeyMap.toJavaFXKey(GLFW.GLFW_KEY_F13));
+        assertEquals(KeyEvent.VK_F24, GLFXKeyMap.toJavaFXKey(GLFW.GLFW_KEY_F24));
+        assertEquals(KeyEvent.VK_NUMPAD7, GLFXKeyMap.toJavaFXKey(GLFW.GLFW_KEY_KP_7));
+        assertEquals(KeyEvent.VK_ADD, GLFXKeyMap.toJavaFXKey(GLFW.GLFW_KEY_KP_ADD));
+        assertEquals(KeyEvent.VK_QUOTE, GLFXKeyMap.toJavaFXKey(GLFW.GLFW_KEY_APOSTROPHE));
+        assertEquals(KeyEvent.VK_CONTEXT_MENU, GLFXKeyMap.toJavaFXKey(GLFW.GLFW_KEY_MENU));
+    }
+
+    @Test
+    public void testModifiers() {
+        final int glfwMods = GLFXKeyMap.toGLFWModifiers(EnumSet.of(GLKeyModifier.SHIFT, GLKeyModifier.SUPER));
+
+        assertEquals(GLFW.GLFW_MOD_SHIFT | GLFW.GLFW_MOD_SUPER, glfwMods);
+        assertEquals(AbstractEvents.MODIFIER_SHIFT | AbstractEvents.MODIFIER_META, GLFXKeyMap.toJavaFXModifiers(glfwMods));
+        assertEquals(0, GLFXKeyMap.toJavaFXModifiers(GLFXKeyMap.toGLFWModifiers(EnumSet.noneOf(GLKeyModifier.class))));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Checks the affine mouse transform.
+ */
+public class TestGLFXMouseTransform {
+
+    private static final double EPSILON = 1e-9;
+
+    private static void assertTransforms(
+            final GLFXMouseTransform transform,
+            final double x, final double y,
+            final double expectedX, final double expectedY) {
+
+        assertEquals(expectedX, transform.transformX(x, y), EPSILON);
+        assertEquals(expectedY, transform.transformY(x, y), EPSILON);
+    }
+
+    @Test
+    public void testIdentity() {
+        assertTransforms(GLFXMouseTransform.IDENTITY, 0.0, 0.0, 0.0, 0.0);
+        assertTransforms(GLFXMouseTransform.IDENTITY, 12.5, -7.0, 12.5, -7.0);
+        assertTransforms(new GLFXMouseTransform(), 640.0, 360.0, 640.0, 360.0);
+    }
+
+    @Test
+    public void testTranslate() {
+        final GLFXMouseTransform transform = GLFXMouseTransform.IDENTITY.withTranslation(-100.0, 50.0);
+
+        assertTransforms(transform, 0.0, 0.0, -100.0, 50.0);
+        assertTransforms(transform, 150.0, 25.0, 50.0, 75.0);
+    }
+
+    @Test
+    public void testScale() {
+        final GLFXMouseTransform transform = GLFXMouseTransform.IDENTITY.withScale(0.5, 2.0);
+
+        assertTransforms(transform, 0.0, 0.0, 0.0, 0.0);
+        assertTransforms(transform, 200.0, 30.0, 100.0, 60.0);
+    }
+
+    @Test
+    public void testTranslateThenScale() {
+        // the scale applies to the translated point
+        final GLFXMouseTransform transform = GLFXMouseTransform.IDENTITY
+                .withTranslation(-10.0, -20.0)
+                .withScale(2.0, 4.0);
+
+        assertTransforms(transform, 10.0, 20.0, 0.0, 0.0);
+        assertTransforms(transform, 15.0, 25.0, 10.0, 20.0);
+    }
+
+    @Test
+    public void testInverse() {
+        final GLFXMouseTransform transform = new GLFXMouseTransform(
+                2.0, 0.5, -30.0,
+                -0.25, 1.5, 12.0);
+        final GLFXMouseTransform inverse = transform.inverse();
+
+        for (double[] point : new double[][]{{0.0, 0.0}, {640.0, 360.0}, {-17.5, 3.25}}) {
+            final double x = transform.transformX(point[0], point[1]);
+            final double y = transform.transformY(point[0], point[1]);
+
+            assertTransforms(inverse, x, y, point[0], point[1]);
+        }
+
+        assertTransforms(GLFXMouseTransform.IDENTITY.inverse(), 3.0, 4.0, 3.0, 4.0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSingularInverse() {
+        GLFXMouseTransform.IDENTITY.withScale(0.0, 1.0).inverse();
+    }
+
+    @Test
+    public void testMousePositionDoesNotAllocate() {
+        final GLFXMouseTransform transform = GLFXMouseTransform.IDENTITY
+                .withTranslation(-64.0, -32.0)
+                .withScale(1.25, 1.25);
+        final int[] mouse = new int[2];
+        final double[] position = {0.0};
+
+        // the step doMousePositionEvent performs for each event when an affine transform is set
+        TestGLFXAllocation.assertNoAllocation("Mouse position transform", () -> {
+            final double x = position[0];
+            final double y = 720.0 - position[0];
+
+            mouse[0] = (int) transform.transformX(x, y);
+            mouse[1] = (int) transform.transformY(x, y);
+            position[0] = (position[0] + 1.0) % 1280.0;
+        });
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import com.longlinkislong.gloop.GLTask;
+import com.longlinkislong.gloop.GLThread;
+import com.longlinkislong.gloop.GLWindow;
+import com.longlinkislong.gloop.TestFramework;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.scene.Group;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import org.junit.Test;
+import org.lwjgl.opengl.GL11;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestGLFXStageBatch {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestGLFXStageBatch.class);
+    private static final int STAGE_WIDTH = 96;
+    private static final int STAGE_HEIGHT = 48;
+
+    //@Test
+    public void benchmark() {
+        GLFXBenchmark.run("GLFXStageBatch benchmark", window -> {
+            for (int stageCount : new int[]{1, 10, 100}) {
+                this.benchmark(window, stageCount);
+            }
+        });
+    }
+
+    private void benchmark(final GLWindow window, final int stageCount) {
+        final GLThread thread = window.getGLThread();
+        final List<GLFXStage> stages = new ArrayList<>();
+        final List<GLTask> drawTasks = new ArrayList<>();
+
+        for (int i = 0; i < stageCount; i++) {
+            final GLFXStage stage = new GLFXStage(thread, STAGE_WIDTH, STAGE_HEIGHT);
+
+            stage.setParentWindowSize(GLFXBenchmark.WIDTH, GLFXBenchmark.HEIGHT);
+            stage.setScene(new Scene(new Group(new Label("Stage " + i)), STAGE_WIDTH, STAGE_HEIGHT));
+            stages.add(stage);
+            drawTasks.add(stage.newDrawTask());
+        }
+
+        final GLFXStageBatch batch = new GLFXStageBatch(thread, stages);
+        final int columns = GLFXBenchmark.WIDTH / STAGE_WIDTH;
+
+        batch.setWindowSize(GLFXBenchmark.WIDTH, GLFXBenchmark.HEIGHT);
+
+        for (int i = 0; i < stageCount; i++) {
+            batch.setPosition(stages.get(i), (i % columns) * STAGE_WIDTH, (i / columns) * STAGE_HEIGHT);
+        }
+
+        final double separateMs = GLFXBenchmark.measure(window, finished(() -> drawTasks.forEach(GLTask::run)), null);
+        final GLTask batchDraw = batch.newDrawTask();
+        final double batchMs = GLFXBenchmark.measure(window, finished(batchDraw::run), null);
+
+        LOGGER.info("{} stages: separate tasks {} ms/frame, batch {} ms/frame", stageCount, separateMs, batchMs);
+
+        GLTask.create(() -> {
+            batch.delete();
+            stages.forEach(GLFXStage::clean);
+            TestFramework.assertNoGLError();
+        }).glRun(thread);
+    }
+
+    // finishing each frame includes the driver's work in the measurement
+    private static GLTask finished(final Runnable draw) {
+        return GLTask.create(() -> {
+            draw.run();
+            GL11.glFinish();
+        });
+    }
+}
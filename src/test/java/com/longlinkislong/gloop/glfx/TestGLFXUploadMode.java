@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glfx;
+
+import com.longlinkislong.gloop.GLTask;
+import com.longlinkislong.gloop.GLThread;
+import com.longlinkislong.gloop.GLWindow;
+import com.longlinkislong.gloop.TestFramework;
+import javafx.application.Platform;
+import javafx.scene.Group;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestGLFXUploadMode {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestGLFXUploadMode.class);
+
+    //@Test
+    public void benchmark() {
+        GLFXBenchmark.run("GLFXUploadMode benchmark", window -> {
+            for (GLFXUploadMode mode : GLFXUploadMode.values()) {
+                this.benchmark(window, mode, false);
+                this.benchmark(window, mode, true);
+            }
+        });
+    }
+
+    private void benchmark(final GLWindow window, final GLFXUploadMode mode, final boolean dirtyRegionTracking) {
+        final GLThread thread = window.getGLThread();
+        final GLFXStage stage = new GLFXStage(thread, GLFXBenchmark.WIDTH, GLFXBenchmark.HEIGHT);
+        final Label label = new Label();
+
+        stage.setParentWindowSize(GLFXBenchmark.WIDTH, GLFXBenchmark.HEIGHT);
+        stage.setUploadMode(mode);
+        stage.setDirtyRegionTracking(dirtyRegionTracking);
+        stage.setScene(new Scene(new Group(label), GLFXBenchmark.WIDTH, GLFXBenchmark.HEIGHT));
+
+        final GLTask draw = stage.newDrawTask();
+        final int[] counter = new int[1];
+        // changing the label every frame keeps a capture pending
+        final GLTask frame = GLTask.create(() -> {
+            final String text = "Frame " + counter[0]++;
+
+            Platform.runLater(() -> label.setText(text));
+            draw.run();
+        });
+        final GLFXStageStats stats = stage.getStats();
+        final double ms = GLFXBenchmark.measure(window, frame, GLTask.create(stats::reset));
+        final long uploads = stats.getUploadedFrames();
+
+        assertTrue(mode + " uploaded no frames!", uploads > 0);
+
+        LOGGER.info("{} tracking {}: {} bytes copied/frame, {} bytes uploaded/frame, {} ms/frame",
+                mode, dirtyRegionTracking,
+                stats.getTotalCopiedBytes() / uploads,
+                stats.getTotalUploadedBytes() / uploads,
+                ms);
+
+        GLTask.create(() -> {
+            stage.clean();
+            TestFramework.assertNoGLError();
+        }).glRun(thread);
+    }
+}